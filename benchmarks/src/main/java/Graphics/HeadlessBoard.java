@@ -0,0 +1,110 @@
+package Graphics;
+
+import Logic.BroadcastingListReceiver;
+import Logic.Entry;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Stand-in for Canvas without a display. Holds a TileBoard the size of the
+ * one on screen and paints it into an offscreen image at the refresh rate
+ * whenever it changed or is animating, as the RepaintManager would paint it
+ * on screen. Stops painting while IdleMode is IDLE, as Canvas does.
+ * To be used from the event dispatch thread only.
+ */
+public class HeadlessBoard implements BroadcastingListReceiver<Entry> {
+    private static final int PAINT_INTERVAL_MILLIS = 1000/60;
+
+    private final TileBoard board = new TileBoard();
+    private final BufferedImage image;
+    private final Timer painter = new Timer(PAINT_INTERVAL_MILLIS, event -> paint());
+    /**
+     * If the board changed since it was last painted
+     */
+    private boolean changed;
+    private final IdleMode idleMode = new IdleMode(board, () -> false, this::idleChanged);
+    /**
+     * System.nanoTime() at the end of the last paint, 0 if never painted
+     */
+    private volatile long paintedNanos;
+
+    public HeadlessBoard(){
+        board.setSize(Tile.width()*Canvas.SPACES_HORIZONTAL, Tile.height()*Canvas.SPACES_VERTICAL);
+        image = new BufferedImage(board.getWidth(), board.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        painter.setInitialDelay(0);
+    }
+    /**
+     * Starts painting the board
+     */
+    public void start(){
+        painter.start();
+        idleMode.check();
+    }
+    public void stop(){
+        painter.stop();
+    }
+    @Override
+    public void doOnAdd(Entry item) {
+        idleMode.wake();
+        board.addNumber(item.getNumber(), item.getLane());
+        changed = true;
+    }
+    @Override
+    public void doOnRemove(Entry item) {
+        board.fadeOutNumber(item.getNumber());
+        changed = true;
+    }
+    @Override
+    public void doOnAddAll(List<Entry> items) {
+        idleMode.wake();
+        board.addNumbers(items);
+        changed = true;
+    }
+    @Override
+    public void doOnRemoveAll(List<Entry> items) {
+        board.fadeOutNumbers(items);
+        changed = true;
+    }
+    /**
+     * @return number of Tiles on the board, on screen or fading out
+     */
+    public int getComponentCount(){
+        return board.getComponentCount();
+    }
+    /**
+     * @return if IdleMode is IDLE, nothing being painted
+     */
+    public boolean isIdle(){
+        return idleMode.getState() == IdleMode.State.IDLE;
+    }
+    /**
+     * @return System.nanoTime() at the end of the last paint, 0 if never
+     * painted, to be read from any thread
+     */
+    public long getPaintedNanos(){
+        return paintedNanos;
+    }
+    private void idleChanged(IdleMode.State state){
+        if (state == IdleMode.State.IDLE)
+            painter.stop();
+        else
+            painter.restart();
+    }
+    private void paint(){
+        if (!changed && Animator.runningCount() == 0)
+            return;
+        changed = false;
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(new Color(0, 0, 0, 0));
+            graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+            board.paint(graphics);
+        }finally{
+            graphics.dispose();
+        }
+        paintedNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,76 @@
+package Graphics;
+
+import Logic.Manager;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures typing on InputPane under headless AWT, from a key pressed to the
+ * Tile showing it being painted. Run with -Pjmh.profilers=gc to tell the
+ * bytes allocated per keystroke, which are to be none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class InputPaneBenchmark {
+    private InputPane pane;
+    private KeyListener listener;
+    /**
+     * Keys typed in turn, a digit, a backspace back to the first digit and
+     * a switch of Lane, so that the number typed stays within
+     * Manager.MAX_ENTRY_DIGITS
+     */
+    private KeyEvent[] keys;
+    private int next;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Manager.instance = new Manager();
+        pane = new InputPane(new TileBoard());
+        pane.type(1);
+        listener = pane.getKeyListeners()[0];
+        keys = new KeyEvent[]{
+                key(KeyEvent.VK_2, '2'), key(KeyEvent.VK_BACK_SPACE, '\b'),
+                key(KeyEvent.VK_MULTIPLY, '*')};
+        image = new BufferedImage(Tile.width(), Tile.height(), BufferedImage.TYPE_INT_ARGB_PRE);
+        graphics = image.createGraphics();
+    }
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        graphics.dispose();
+    }
+    private KeyEvent key(int code, char character){
+        return new KeyEvent(pane, KeyEvent.KEY_PRESSED, 0, 0, code, character);
+    }
+    /**
+     * Handles a key pressed, updating the Tile being typed in place
+     */
+    @Benchmark
+    public InputPane keystroke(){
+        listener.keyPressed(keys[next]);
+        next = (next + 1) % keys.length;
+        return pane;
+    }
+    /**
+     * Handles a key pressed and paints the Tile being typed, as done on the
+     * next repaint, leaving out the Graphics copies made by Swing for each
+     * component painted
+     */
+    @Benchmark
+    public BufferedImage keystrokeToPixel(){
+        listener.keyPressed(keys[next]);
+        next = (next + 1) % keys.length;
+        ((Tile)pane.getComponent(0)).paintComponent(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,44 @@
+package Graphics;
+
+import Logic.Lane;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures removing the first displayed Tile and adding a new one while the
+ * screen is full and bufferedCount more entries do not fit on screen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TileBoardBenchmark {
+    @Param({"0", "80"})
+    public int bufferedCount;
+
+    private TileBoard board;
+    private int[] numbers;
+    private int oldest;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        board = new TileBoard();
+        board.setSize(Tile.width()*Canvas.SPACES_HORIZONTAL, Tile.height()*Canvas.SPACES_VERTICAL);
+        numbers = new int[TileBoard.CELLS + bufferedCount];
+        for (int i = 0; i < numbers.length; i++){
+            numbers[i] = i;
+            board.addNumber(i, Lane.REGULAR);
+        }
+    }
+    @Benchmark
+    public TileBoard removeAddChurn(){
+        int number = numbers[oldest];
+        oldest = (oldest + 1) % numbers.length;
+        board.removeNumber(number);
+        board.addNumber(number, Lane.REGULAR);
+        return board;
+    }
+}
@@ -0,0 +1,53 @@
+package Graphics;
+
+import Logic.Entry;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures painting a Tile into an offscreen image under headless AWT
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TilePaintBenchmark {
+    private Tile tile;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        tile = new Tile(new Entry(42));
+        tile.setBounds(0, 0, Tile.width(), Tile.height());
+        image = new BufferedImage(Tile.width(), Tile.height(), BufferedImage.TYPE_INT_ARGB_PRE);
+        graphics = image.createGraphics();
+    }
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        graphics.dispose();
+    }
+    /**
+     * Repaints a Tile at rest, as done on every repaint of Canvas
+     */
+    @Benchmark
+    public BufferedImage paint(){
+        tile.paint(graphics);
+        return image;
+    }
+    /**
+     * Paints a Tile after the render cache has been emptied, as done the
+     * first time a number is shown
+     */
+    @Benchmark
+    public BufferedImage paintUncached(){
+        TileRenderer.invalidate();
+        tile.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,73 @@
+package Graphics;
+
+import Logic.Lane;
+import Logic.Manager;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing a whole frame of the TileScene of ActiveCanvas into an
+ * offscreen image under headless AWT, with a full screen of Tiles at rest,
+ * all of them fading out or all of them flying in. The time of a frame is
+ * to be about the same whatever is animating.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TileSceneBenchmark {
+    @Param({"rest", "fade", "fly"})
+    public String animation;
+
+    private TileScene scene;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    /**
+     * Time of the frame drawn, halfway through the animation
+     */
+    private long frameNanos;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Manager.instance = new Manager();
+        scene = new TileScene(0);
+        long start = System.nanoTime();
+        if (animation.equals("fly")){
+            for (int number = 10; number < 10 + TileBoard.CELLS; number++){
+                scene.press(KeyEvent.VK_0 + number/10, (char)('0' + number/10), start);
+                scene.press(KeyEvent.VK_0 + number%10, (char)('0' + number%10), start);
+                scene.press(KeyEvent.VK_ENTER, '\n', start);
+            }
+            frameNanos = start + InputPane.FLY_MILLIS * 1_000_000 / 2;
+        }else{
+            for (int number = 0; number < TileBoard.CELLS; number++)
+                scene.add(number, Lane.values()[number % Lane.values().length]);
+            if (animation.equals("fade")){
+                for (int number = 0; number < TileBoard.CELLS; number++)
+                    scene.fadeOut(number, start);
+            }
+            frameNanos = start + Tile.FADE_MILLIS * 1_000_000 / 2;
+        }
+        Geometry geometry = Geometry.get();
+        image = new BufferedImage(geometry.screenWidth, geometry.screenHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        graphics = image.createGraphics();
+    }
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        graphics.dispose();
+    }
+    /**
+     * Draws the whole scene as ActiveCanvas does for each frame
+     */
+    @Benchmark
+    public BufferedImage frame(){
+        scene.render(graphics, null, frameNanos);
+        return image;
+    }
+}
@@ -0,0 +1,45 @@
+package Logic;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures broadcasting an addition and a removal to a number of receivers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastingListBenchmark {
+    @Param({"1", "4", "16"})
+    public int receiverCount;
+
+    private BroadcastingList<Entry> list;
+    private Entry entry;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole){
+        list = new BroadcastingList<>(Entry::getNumber, Manager.ENTRY_SPACE);
+        for (int i = 0; i < receiverCount; i++){
+            list.addReceiver(new BroadcastingListReceiver<Entry>() {
+                @Override
+                public void doOnAdd(Entry item) {
+                    blackhole.consume(item);
+                }
+                @Override
+                public void doOnRemove(Entry item) {
+                    blackhole.consume(item);
+                }
+            });
+        }
+        entry = new Entry(Manager.ENTRY_SPACE - 1);
+    }
+    @Benchmark
+    public boolean addRemove(){
+        return list.add(entry) & list.remove(entry);
+    }
+}
@@ -0,0 +1,57 @@
+package Logic;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding and removing an entry through Manager with the list of
+ * entries filled to different levels
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagerBenchmark {
+    /**
+     * Percentage of the entry number space already added
+     */
+    @Param({"0", "50", "95"})
+    public int fillPercent;
+
+    private Manager manager;
+    private int filled;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        manager = new Manager();
+        filled = Manager.ENTRY_SPACE * fillPercent / 100;
+        for (int entryNumber = 0; entryNumber < filled; entryNumber++)
+            manager.add(entryNumber);
+        next = filled;
+    }
+    /**
+     * Adds an entry not yet added and removes it again
+     */
+    @Benchmark
+    public boolean addRemove(){
+        int entryNumber = next;
+        next = next + 1 < Manager.ENTRY_SPACE ? next + 1 : filled;
+        return manager.add(entryNumber) & manager.remove(entryNumber);
+    }
+    /**
+     * Removes the oldest entry and adds it back last
+     */
+    @Benchmark
+    public boolean rotateOldest(){
+        if (filled == 0)
+            return false;
+        int entryNumber = next - filled;
+        next = next + 1 < Manager.ENTRY_SPACE + filled ? next + 1 : filled;
+        entryNumber = Math.floorMod(entryNumber, filled);
+        return manager.remove(entryNumber) & manager.add(entryNumber);
+    }
+}
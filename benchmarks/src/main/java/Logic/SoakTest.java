@@ -0,0 +1,328 @@
+package Logic;
+
+import Graphics.Animator;
+import Graphics.Canvas;
+import Graphics.HeadlessBoard;
+
+import com.sun.management.OperatingSystemMXBean;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+
+/**
+ * Soak test of the whole pipeline, from Manager to the Tiles painted,
+ * replaying order arrivals and pickups for as long as asked and reporting
+ * event dispatch thread latency, frame times, heap and leaked Tiles and
+ * animations at a fixed interval.
+ * Orders arrive as a Poisson process, during a rush hour at RUSH_FACTOR
+ * times the rate for RUSH_MINUTES of every hour, and are picked up after
+ * exponentially distributed waits. Simulated time runs speed times faster
+ * than real time, so a day of service can be replayed in an hour.
+ * Shows a real Canvas if there is a display, such as one given by Xvfb, and
+ * otherwise paints a HeadlessBoard offscreen.
+ * Configured by system properties, see the soak task of the benchmarks
+ * project. Exits with status 1 if Tiles or animations are left over once
+ * all orders have been picked up.
+ * Once settled, a HeadlessBoard is left to turn idle, after which the CPU
+ * used while idle and the time from an order arriving while idle to it
+ * being painted are reported.
+ */
+public class SoakTest {
+    private static final double RUSH_FACTOR = 4;
+    private static final long RUSH_MINUTES = 15;
+    /**
+     * Longest time to wait for the board to settle after the last pickup
+     */
+    private static final long SETTLE_SECONDS = 30;
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    /**
+     * Number of orders arriving while idle to measure waking up by
+     */
+    private static final int WAKEUPS = 10;
+    /**
+     * Longest time to wait for an order arriving while idle to be painted
+     */
+    private static final long WAKEUP_TIMEOUT_SECONDS = 5;
+
+    private final Manager manager = new Manager();
+    private final Random random = new Random(Long.getLong("soak.seed", 1));
+    private final boolean rush = "rush".equals(System.getProperty("soak.pattern", "poisson"));
+    /**
+     * Orders arriving per simulated minute, outside of rush hours
+     */
+    private final double rate = Double.parseDouble(System.getProperty("soak.rate", "2"));
+    /**
+     * Mean simulated minutes from an order arriving to it being picked up
+     */
+    private final double meanWait = Double.parseDouble(System.getProperty("soak.wait", "8"));
+    private final double speed = Double.parseDouble(System.getProperty("soak.speed", "1"));
+    private final long durationNanos = TimeUnit.MINUTES.toNanos(Long.getLong("soak.minutes", 60));
+    private final long reportNanos = TimeUnit.SECONDS.toNanos(Long.getLong("soak.report.seconds", 60));
+    /**
+     * Seconds of measuring CPU used while idle, 0 to not measure idling
+     */
+    private final long idleSeconds = Long.getLong("soak.idle.seconds", 10);
+    /**
+     * Orders waiting to be picked up, earliest first
+     */
+    private final PriorityQueue<Pickup> pickups = new PriorityQueue<>();
+    private AsyncReceiver<Entry> receiver;
+    private HeadlessBoard headlessBoard;
+    private long startNanos;
+    private long added;
+    private long removed;
+    /**
+     * Orders not added since all entry numbers were taken
+     */
+    private long rejected;
+    private long firstHeap = -1;
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new SoakTest().run() ? 0 : 1);
+    }
+    /**
+     * @return if nothing was left over after all orders were picked up
+     */
+    private boolean run() throws InterruptedException, InvocationTargetException {
+        Manager.instance = manager;
+        if (GraphicsEnvironment.isHeadless()){
+            EventQueue.invokeAndWait(() -> {
+                headlessBoard = new HeadlessBoard();
+                headlessBoard.start();
+            });
+            receiver = manager.addReceiver(headlessBoard, EventQueue::invokeLater);
+        }else{
+            receiver = manager.addReceiver(Canvas.createLater(), EventQueue::invokeLater);
+        }
+        Metrics.instance.setOpenOrders(manager::size);
+        Metrics.instance.start(0);
+        int idleComponents = countComponents();
+        System.out.printf(Locale.ROOT, "Soak test: %s, %.1f orders/min, %.1f min wait, %.0fx speed, %s, %d entry numbers%n",
+                rush ? "rush hours" : "poisson", rate, meanWait, speed,
+                headlessBoard != null ? "headless" : "Canvas", Manager.ENTRY_SPACE);
+
+        startNanos = System.nanoTime();
+        long end = startNanos + durationNanos;
+        long nextArrival = startNanos + arrivalGap(startNanos);
+        long nextReport = startNanos + reportNanos;
+        long now;
+        while ((now = System.nanoTime()) < end){
+            while (!pickups.isEmpty() && pickups.peek().dueNanos <= now){
+                if (manager.remove(pickups.poll().number))
+                    removed++;
+            }
+            while (nextArrival <= now){
+                arrive(nextArrival);
+                nextArrival += arrivalGap(nextArrival);
+            }
+            if (now >= nextReport){
+                report(now);
+                nextReport += reportNanos;
+            }
+            long next = Math.min(Math.min(nextArrival, nextReport), end);
+            if (!pickups.isEmpty())
+                next = Math.min(next, pickups.peek().dueNanos);
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+
+        while (!pickups.isEmpty()){
+            if (manager.remove(pickups.poll().number))
+                removed++;
+        }
+        boolean settled = settle(idleComponents);
+        report(System.nanoTime());
+        if (settled && headlessBoard != null && idleSeconds > 0)
+            return measureIdle();
+        return settled;
+    }
+    /**
+     * Adds a new order, scheduling its pickup
+     * @param nanos time the order arrives
+     */
+    private void arrive(long nanos){
+        for (int attempt = 0; attempt < Manager.ENTRY_SPACE; attempt++){
+            int number = manager.autoNext();
+            if (manager.add(number)){
+                added++;
+                double wait = -Math.log(1 - random.nextDouble()) * meanWait;
+                pickups.add(new Pickup(nanos + (long)(wait * NANOS_PER_MINUTE / speed), number));
+                return;
+            }
+        }
+        rejected++;
+    }
+    /**
+     * @param nanos time of the last arrival
+     * @return real nanoseconds until the next arrival
+     */
+    private long arrivalGap(long nanos){
+        double minutes = (nanos - startNanos) * speed / NANOS_PER_MINUTE;
+        double perMinute = rush && (long)minutes % 60 < RUSH_MINUTES ? rate * RUSH_FACTOR : rate;
+        double gap = -Math.log(1 - random.nextDouble()) / perMinute;
+        return Math.max(1, (long)(gap * NANOS_PER_MINUTE / speed));
+    }
+    /**
+     * Waits for all Tiles to fade out and all animations to end
+     * @param idleComponents number of components with no orders added
+     * @return if the board settled back to idleComponents with no animations
+     */
+    private boolean settle(int idleComponents) throws InterruptedException, InvocationTargetException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SETTLE_SECONDS);
+        int components;
+        int animations;
+        do {
+            Thread.sleep(100);
+            components = countComponents();
+            animations = onEventDispatchThread(Animator::runningCount);
+        }while ((components > idleComponents || animations > 0 || receiver.getQueued() > 0)
+                && System.nanoTime() < deadline);
+        if (components > idleComponents)
+            System.out.println("LEAK: " + (components - idleComponents) + " components left over");
+        if (animations > 0)
+            System.out.println("LEAK: " + animations + " animations still running");
+        return components <= idleComponents && animations == 0;
+    }
+    /**
+     * Measures the CPU used while the HeadlessBoard is idle, then the time
+     * from an order arriving while idle to the HeadlessBoard being painted,
+     * WAKEUPS times
+     * @return if the HeadlessBoard turned idle every time
+     */
+    private boolean measureIdle() throws InterruptedException, InvocationTargetException {
+        if (!awaitIdle())
+            return false;
+        OperatingSystemMXBean system = (OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean();
+        long startCpu = system.getProcessCpuTime();
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(idleSeconds));
+        double cpuPercent = 100.0 * (system.getProcessCpuTime() - startCpu) / (System.nanoTime() - start);
+        long[] wakeups = new long[WAKEUPS];
+        for (int i = 0; i < WAKEUPS; i++){
+            if (!awaitIdle())
+                return false;
+            int number = manager.autoNext();
+            long arrived = System.nanoTime();
+            manager.add(number);
+            long deadline = arrived + TimeUnit.SECONDS.toNanos(WAKEUP_TIMEOUT_SECONDS);
+            while (headlessBoard.getPaintedNanos() < arrived && System.nanoTime() < deadline)
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            wakeups[i] = headlessBoard.getPaintedNanos() - arrived;
+            manager.remove(number);
+        }
+        Arrays.sort(wakeups);
+        System.out.printf(Locale.ROOT, "Idle: cpu=%.2f%% of one core over %ds, wakeup to painted p50/max=%.2f/%.2fms%n",
+                cpuPercent, idleSeconds, wakeups[WAKEUPS/2] / 1e6, wakeups[WAKEUPS - 1] / 1e6);
+        return true;
+    }
+    /**
+     * Waits for the HeadlessBoard to turn idle
+     * @return if it turned idle within SETTLE_SECONDS
+     */
+    private boolean awaitIdle() throws InterruptedException, InvocationTargetException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SETTLE_SECONDS);
+        while (onEventDispatchThread(() -> headlessBoard.isIdle() ? 1 : 0) == 0){
+            if (System.nanoTime() > deadline){
+                System.out.println("Never turned idle");
+                return false;
+            }
+            Thread.sleep(100);
+        }
+        return true;
+    }
+    /**
+     * Prints a line of what happened since the last report, then resets the
+     * histograms reported on
+     * @param now System.nanoTime()
+     */
+    private void report(long now) throws InterruptedException, InvocationTargetException {
+        Metrics metrics = Metrics.instance;
+        long heap = heapAfterCollection();
+        if (firstHeap < 0)
+            firstHeap = heap;
+        double elapsedMinutes = (now - startNanos) / NANOS_PER_MINUTE;
+        System.out.printf(Locale.ROOT,
+                "%.1fmin (%.0f simulated) orders=%d added=%d removed=%d rejected=%d queued=%d" +
+                        " edtQueueDelay p99/max=%.2f/%.2fms frame p99=%.2fms frameInterval p99=%.1fms" +
+                        " dispatchDelay p99=%.2fms tilePaint p99=%.3fms heap=%.1fMB (%+.1fMB)" +
+                        " animations=%d components=%d threads=%d%n",
+                elapsedMinutes, elapsedMinutes * speed, manager.size(), added, removed, rejected,
+                receiver.getQueued(),
+                metrics.edtQueueDelay.getP99Millis(), metrics.edtQueueDelay.getMaxMillis(),
+                metrics.frameTime.getP99Millis(), metrics.frameInterval.getP99Millis(),
+                metrics.dispatchDelay.getP99Millis(), metrics.tilePaint.getP99Millis(),
+                heap / 1e6, (heap - firstHeap) / 1e6,
+                onEventDispatchThread(Animator::runningCount), countComponents(),
+                ManagementFactory.getThreadMXBean().getThreadCount());
+        metrics.edtQueueDelay.reset();
+        metrics.frameTime.reset();
+        metrics.frameInterval.reset();
+        metrics.dispatchDelay.reset();
+        metrics.tilePaint.reset();
+    }
+    /**
+     * @return bytes of heap in use after the last garbage collection, so
+     * that growth is told apart from garbage not yet collected
+     */
+    private static long heapAfterCollection(){
+        long used = 0;
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()){
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null)
+                used += usage.getUsed();
+        }
+        return used;
+    }
+    /**
+     * @return number of Tiles on the HeadlessBoard, or of components in all
+     * windows when showing a Canvas
+     */
+    private int countComponents() throws InterruptedException, InvocationTargetException {
+        return onEventDispatchThread(() -> {
+            if (headlessBoard != null)
+                return headlessBoard.getComponentCount();
+            int count = 0;
+            for (Window window: Window.getWindows())
+                count += countComponents(window);
+            return count;
+        });
+    }
+    private static int countComponents(Container container){
+        int count = 1;
+        for (Component component: container.getComponents())
+            count += component instanceof Container ? countComponents((Container)component) : 1;
+        return count;
+    }
+    private static int onEventDispatchThread(IntSupplier supplier)
+            throws InterruptedException, InvocationTargetException {
+        int[] result = new int[1];
+        EventQueue.invokeAndWait(() -> result[0] = supplier.getAsInt());
+        return result[0];
+    }
+
+    /**
+     * An order to be picked up
+     */
+    private static class Pickup implements Comparable<Pickup> {
+        private final long dueNanos;
+        private final int number;
+
+        private Pickup(long dueNanos, int number){
+            this.dueNanos = dueNanos;
+            this.number = number;
+        }
+        @Override
+        public int compareTo(Pickup other){
+            return Long.compare(dueNanos, other.dueNanos);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package Logic;
+
+import Graphics.Canvas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures starting QueManager in a new process until Canvas is shown and
+ * ready for input, with and without the class data sharing archive built by
+ * the cdsArchive task. Needs a display, and the jar and archive given by
+ * the system properties quemanager.jar and quemanager.cds, which the jmh
+ * task sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+    @Param({"false", "true"})
+    public boolean classDataSharing;
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private List<String> command;
+    /**
+     * File the started process prints to
+     */
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String jar = System.getProperty("quemanager.jar");
+        if (jar == null || !new File(jar).isFile())
+            throw new IllegalStateException("No QueManager jar given by quemanager.jar: " + jar);
+        command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (classDataSharing){
+            String archive = System.getProperty("quemanager.cds");
+            if (archive == null || !new File(archive).isFile())
+                throw new IllegalStateException("No archive given by quemanager.cds, run cdsArchive first: " + archive);
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.add("-D" + Canvas.STARTUP_EXIT_PROPERTY + "=true");
+        command.add("-Dquemanager.journal.dir=");
+        command.add("-cp");
+        command.add(jar);
+        command.add("Logic.Manager");
+        output = Files.createTempFile("quemanager-startup", ".log");
+    }
+    /**
+     * Starts QueManager and waits for it to exit once Canvas is shown
+     */
+    @Benchmark
+    public int startUntilShown() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(output.toFile()).start();
+        if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)){
+            process.destroyForcibly();
+            throw new IllegalStateException("QueManager not shown within " + TIMEOUT_SECONDS + " s");
+        }
+        String printed = Files.readString(output);
+        if (process.exitValue() != 0 || !printed.contains("Startup:"))
+            throw new IllegalStateException("QueManager did not start: " + printed);
+        return process.exitValue();
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+}
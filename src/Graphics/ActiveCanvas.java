@@ -0,0 +1,267 @@
+package Graphics;
+
+import Logic.BroadcastingListReceiver;
+import Logic.Entry;
+import Logic.Manager;
+import Logic.Metrics;
+
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferStrategy;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alternative to Canvas rendering actively rather than through Swing. The
+ * whole TileScene, Tiles, fades and Tiles flying in, is drawn in a single
+ * pass into a BufferStrategy on a render thread of its own, once per
+ * display refresh while anything is animating and as soon as anything
+ * changes, with no component tree to paint, clip or composite. Page
+ * flipping is used where the screen supports it, so that frames are shown
+ * whole. The render thread sleeps while nothing changes.
+ * Changes to entries are delivered on the render thread, ActiveCanvas being
+ * the Executor they are delivered on, and keys pressed are handed over to it
+ * from the event dispatch thread, so that only the render thread touches
+ * the TileScene.
+ * Chosen over Canvas by setting system property DISPLAY_PROPERTY to
+ * ACTIVE_DISPLAY. Shaped windows and IdleMode are only supported by Canvas.
+ */
+public class ActiveCanvas extends Frame implements BroadcastingListReceiver<Entry>, Executor {
+    /**
+     * System property choosing how entries are shown, ACTIVE_DISPLAY for
+     * ActiveCanvas, anything else or unset for Canvas
+     */
+    public static final String DISPLAY_PROPERTY = "quemanager.display";
+    public static final String ACTIVE_DISPLAY = "active";
+    /**
+     * Refresh rate assumed when the display does not tell
+     */
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    /**
+     * Number of buffers of the BufferStrategy, one shown and one drawn on
+     */
+    private static final int BUFFERS = 2;
+
+    private final TileScene scene = new TileScene(Integer.getInteger(Canvas.PAGING_PROPERTY, 0));
+    /**
+     * Tasks to be run on the render thread, changes to entries and keys
+     * pressed
+     */
+    private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+    private final Thread renderThread = new Thread(this::render, "QueManager render");
+    private BufferStrategy strategy;
+    /**
+     * Time between two frames at the display refresh rate
+     */
+    private long frameNanos;
+
+    private ActiveCanvas(){
+        setTitle("QueManager");
+        setUndecorated(true);
+        setIgnoreRepaint(true);
+        setFocusable(true);
+        Geometry geometry = Geometry.get();
+        setSize(geometry.screenWidth, geometry.screenHeight);
+        setLocationRelativeTo(null);
+        GraphicsDevice device = getGraphicsConfiguration().getDevice();
+        if (device.isWindowTranslucencySupported(GraphicsDevice.WindowTranslucency.PERPIXEL_TRANSLUCENT))
+            setBackground(new Color(0,0,0,0));
+        addKeyListener(new KeyPadListener());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent event){
+                System.exit(0);
+            }
+        });
+        addPropertyChangeListener("graphicsConfiguration", event -> execute(this::displayChanged));
+        renderThread.setDaemon(true);
+    }
+    /**
+     * @return if ActiveCanvas is chosen over Canvas by DISPLAY_PROPERTY
+     */
+    public static boolean isChosen(){
+        return ACTIVE_DISPLAY.equals(System.getProperty(DISPLAY_PROPERTY));
+    }
+    /**
+     * Creates ActiveCanvas and starts its render thread, which shows it
+     * @return ActiveCanvas, to be delivered changes to on itself
+     */
+    public static ActiveCanvas open(){
+        try {
+            ActiveCanvas canvas = new ActiveCanvas();
+            canvas.renderThread.start();
+            return canvas;
+        }catch(HeadlessException | AWTError e){
+            //Nothing to show entries on, same as Canvas
+            System.out.println("Exception catched: No display, " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+    /**
+     * Runs task on the render thread
+     * @param task to be run
+     */
+    @Override
+    public void execute(Runnable task){
+        tasks.add(task);
+    }
+    @Override
+    public void doOnAdd(Entry item){
+        scene.add(item.getNumber(), item.getLane());
+    }
+    @Override
+    public void doOnRemove(Entry item){
+        scene.fadeOut(item.getNumber(), System.nanoTime());
+    }
+    /**
+     * Adds all of items, drawn together in the next frame
+     * @param items added
+     */
+    @Override
+    public void doOnAddAll(List<Entry> items){
+        for (Entry item: items)
+            scene.add(item.getNumber(), item.getLane());
+    }
+    /**
+     * Fades out all of items together from the next frame
+     * @param items removed
+     */
+    @Override
+    public void doOnRemoveAll(List<Entry> items){
+        long now = System.nanoTime();
+        for (Entry item: items)
+            scene.fadeOut(item.getNumber(), now);
+    }
+    /**
+     * Shows the window, then draws a frame whenever the TileScene changed
+     * and once per display refresh while it is animating, running tasks in
+     * between and sleeping until the next task while nothing is animating
+     */
+    private void render(){
+        try {
+            EventQueue.invokeAndWait(() -> {
+                setVisible(true);
+                requestFocus();
+            });
+        }catch(InterruptedException e){
+            return;
+        }catch(InvocationTargetException e){
+            System.out.println("Exception catched: Window not shown, " + e.getCause());
+            return;
+        }
+        createStrategy();
+        frameNanos = TimeUnit.SECONDS.toNanos(1) / refreshRate();
+        long previousFrameNanos = 0;
+        try {
+            while (true){
+                long now = System.nanoTime();
+                runTasks();
+                scene.step(now);
+                if (scene.needsFrame()){
+                    drawFrame(now);
+                    Metrics.instance.frame(now, previousFrameNanos);
+                    Metrics.instance.painted();
+                    previousFrameNanos = now;
+                }else{
+                    previousFrameNanos = 0;
+                }
+                long next = scene.isAnimating() ? now + frameNanos : scene.nextPageNanos();
+                Runnable task = next == Long.MAX_VALUE ? tasks.take()
+                        : tasks.poll(next - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (task != null)
+                    run(task);
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+    private void runTasks(){
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+            run(task);
+    }
+    /**
+     * Runs task, keeping the render thread running if it fails, as the
+     * event dispatch thread does
+     */
+    private static void run(Runnable task){
+        try {
+            task.run();
+        }catch(RuntimeException e){
+            System.out.println("Exception catched: " + e);
+        }
+    }
+    /**
+     * Creates a page flipping BufferStrategy if the screen supports one,
+     * otherwise the best BufferStrategy available
+     */
+    private void createStrategy(){
+        BufferCapabilities flipping = new BufferCapabilities(new ImageCapabilities(true),
+                new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED);
+        try {
+            createBufferStrategy(BUFFERS, flipping);
+        }catch(AWTException e){
+            createBufferStrategy(BUFFERS);
+        }
+        strategy = getBufferStrategy();
+    }
+    /**
+     * Draws the TileScene as of nowNanos into the back buffer and shows it,
+     * again if the buffers were lost meanwhile
+     */
+    private void drawFrame(long nowNanos){
+        do {
+            do {
+                Graphics2D graphics = (Graphics2D)strategy.getDrawGraphics();
+                try {
+                    scene.render(graphics, getGraphicsConfiguration(), nowNanos);
+                }finally{
+                    graphics.dispose();
+                }
+            }while (strategy.contentsRestored());
+            strategy.show();
+        }while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+    /**
+     * Takes on the size of the screen ActiveCanvas is now shown on
+     */
+    private void displayChanged(){
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null || !Geometry.update(configuration.getBounds()))
+            return;
+        Rectangle bounds = configuration.getBounds();
+        EventQueue.invokeLater(() -> setBounds(bounds));
+        frameNanos = TimeUnit.SECONDS.toNanos(1) / refreshRate();
+        scene.invalidate();
+    }
+    /**
+     * @return refresh rate of the screen ActiveCanvas is shown on
+     */
+    private int refreshRate(){
+        int refreshRate = getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+        return refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : refreshRate;
+    }
+
+    /**
+     * Keylistener handing keys pressed over to the render thread
+     */
+    private class KeyPadListener extends KeyAdapter {
+        @Override
+        public void keyPressed(KeyEvent event){
+            if (Manager.instance.isDisplayOnly())
+                return;
+            Metrics.instance.keystroke();
+            int keyCode = event.getKeyCode();
+            char keyChar = event.getKeyChar();
+            execute(() -> scene.press(keyCode, keyChar, System.nanoTime()));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package Graphics;
+
+import Logic.Metrics;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Single frame clock driving all running animations. Animations are
+ * interpolated by time elapsed rather than by frames ticked, so they take
+ * equally long however loaded the event dispatch thread is. All animations
+ * are stepped once per frame at the display refresh rate, after which each
+ * affected component is repainted once. The clock only runs while there are
+ * animations running.
+ * To be used from the event dispatch thread only.
+ */
+public final class Animator {
+    /**
+     * Refresh rate assumed when the display does not tell
+     */
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    /**
+     * Animations currently running, in the order they were started
+     */
+    private static final ArrayList<Animation> running = new ArrayList<>();
+    /**
+     * Components to be repainted at the end of the current frame
+     */
+    private static final ArrayList<Component> dirty = new ArrayList<>();
+    /**
+     * Functions called each time the last running animation ends and the
+     * clock stops
+     */
+    private static final ArrayList<Runnable> idleListeners = new ArrayList<>();
+    /**
+     * The frame clock
+     */
+    private static final Timer clock = new Timer(1000/refreshRate(), Animator::frame);
+    /**
+     * System.nanoTime() at start of the previous frame, 0 if the clock was
+     * stopped since
+     */
+    private static long previousFrameNanos;
+
+    private Animator(){}
+
+    /**
+     * Starts a new animation, stepped from the next frame on
+     * @param durationMillis how long the animation runs
+     * @param step function called each frame with the progress of the
+     *             animation, from 0 to and including 1 on the last frame
+     * @param target component to be repainted after each step
+     * @param after function to be called after the last step, unless the
+     *              animation is cancelled
+     * @return the started Animation
+     */
+    public static Animation start(long durationMillis, DoubleConsumer step, Component target, Runnable after){
+        Animation animation = new Animation(durationMillis, step, target, after);
+        running.add(animation);
+        if (!clock.isRunning())
+            clock.start();
+        return animation;
+    }
+    /**
+     * Adds listener to be called each time the last running animation ends
+     * and the clock stops
+     * @param listener to be added
+     */
+    static void addIdleListener(Runnable listener){
+        idleListeners.add(listener);
+    }
+    /**
+     * Removes listener added by addIdleListener, so that it and whatever it
+     * refers to are no longer kept reachable
+     * @param listener to be removed
+     */
+    static void removeIdleListener(Runnable listener){
+        idleListeners.remove(listener);
+    }
+    /**
+     * @return number of animations currently running
+     */
+    public static int runningCount(){
+        return running.size();
+    }
+    /**
+     * Eases progress so that animation slows down towards the end
+     * @param progress from 0 to 1
+     * @param power how sharply to slow down, 1 being not at all
+     * @return eased progress from 0 to 1
+     */
+    public static double easeOut(double progress, double power){
+        return 1 - Math.pow(1 - progress, power);
+    }
+    /**
+     * Steps all running animations, repaints affected components, then calls
+     * after for finished animations. Animations started by after are
+     * stepped from the next frame on.
+     */
+    private static void frame(ActionEvent event){
+        long now = System.nanoTime();
+        int count = running.size();
+        for (int i = 0; i < count; i++){
+            Animation animation = running.get(i);
+            if (animation.cancelled)
+                continue;
+            double progress = Math.min(1, (now - animation.startNanos) / (double)animation.durationNanos);
+            animation.step.accept(progress);
+            animation.finished = progress >= 1;
+            if (animation.target != null && !dirty.contains(animation.target))
+                dirty.add(animation.target);
+        }
+        for (Component component: dirty)
+            component.repaint();
+        dirty.clear();
+        for (int i = 0; i < count; i++){
+            Animation animation = running.get(i);
+            if (animation.finished && !animation.cancelled)
+                animation.after.run();
+        }
+        running.subList(0, count).removeIf(animation -> animation.finished || animation.cancelled);
+        Metrics.instance.frame(now, previousFrameNanos);
+        previousFrameNanos = now;
+        if (running.isEmpty()){
+            clock.stop();
+            previousFrameNanos = 0;
+            //Copied, so that a listener can remove itself
+            for (Runnable listener: idleListeners.toArray(new Runnable[0]))
+                listener.run();
+        }
+    }
+    /**
+     * @return refresh rate of the default screen
+     */
+    private static int refreshRate(){
+        if (GraphicsEnvironment.isHeadless())
+            return DEFAULT_REFRESH_RATE;
+        int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        return refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : refreshRate;
+    }
+
+    /**
+     * A running animation
+     */
+    public static final class Animation {
+        private final long startNanos = System.nanoTime();
+        private final long durationNanos;
+        private final DoubleConsumer step;
+        private final Component target;
+        private final Runnable after;
+        private boolean finished;
+        private boolean cancelled;
+
+        private Animation(long durationMillis, DoubleConsumer step, Component target, Runnable after){
+            this.durationNanos = Math.max(1, durationMillis * 1_000_000);
+            this.step = step;
+            this.target = target;
+            this.after = after;
+        }
+        /**
+         * Stops animation where it is, without calling after
+         */
+        public void cancel(){
+            cancelled = true;
+        }
+        /**
+         * @return if animation has neither finished nor been cancelled
+         */
+        public boolean isRunning(){
+            return !finished && !cancelled;
+        }
+    }
+}
@@ -1,158 +1,335 @@
-package Graphics;
-
-import Logic.BroadcastingListReceiver;
-import Logic.Entry;
-import Logic.Manager;
-
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.util.ArrayList;
-import java.util.LinkedList;
-
-public class Canvas extends JFrame implements BroadcastingListReceiver<Entry> {
-
-    /**
-     * Desired number of Tiles to fit along screen width
-     */
-    public static final int SPACES_HORIZONTAL = 5;
-    /**
-     * Desired number of Tiles to fint along screen height
-     */
-    public static final int SPACES_VERTICAL = 4;
-    /**
-     * List containing Tiles not fitting on screen space
-     */
-    private LinkedList<Tile> tileBuffer = new LinkedList<Tile>();
-    /**
-     * List containing Tiles displayed on screen space
-     */
-    private ArrayList<Tile> displayedTiles = new ArrayList<Tile>();
-    /**
-     * Class responsible for displaying added Tiles on a grid defined by
-     * SPACES_HORIZONTAL and SPACES_VERTICAL. Creates and displays InputPane
-     * when any number is typed.
-     * Implements BroadcastingListReceiver
-     */
-    public Canvas(){
-        setLayout(new GridLayout(0, SPACES_HORIZONTAL));
-        setFocusable(true);
-        setTitle("QueManager");
-        setIconImage(new ImageIcon("Resources/QueManagerSmall.png").getImage());
-
-        setSize(new Dimension(Toolkit.getDefaultToolkit().getScreenSize()));
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-        setUndecorated(true);
-        setBackground(new Color(0,0,0,0));
-        addKeyListener(new KeyPadListener());
-
-        requestFocus();
-        setVisible(true);
-    }
-    /**
-     * Adds new Tile, then revalidates and repaints
-     * @param item to be added
-     */
-    @Override
-    public void doOnAdd(Entry item) {
-        //Update tiles
-        addTile(new Tile(item));
-        validate();
-        repaint();
-    }
-    /**
-     * Removes Tile corresponding to item, then revalidates and repaints.
-     * @param item to be removed
-     */
-    @Override
-    public void doOnRemove(Entry item) {
-        //Update tiles
-        Tile toRemove = new Tile(item);
-        if (displayedTiles.contains(toRemove))
-            displayedTiles.get(displayedTiles.indexOf(toRemove)).animateFade(()->{
-                removeTile(toRemove);
-                validate();
-                repaint();
-            });
-    }
-    /**
-     * Adds new Tile to displayedTiles or tileBuffer based on available screen
-     * space
-     * @param tile to be added
-     */
-    private void addTile(Tile tile){
-        if (displayedTiles.size() < SPACES_HORIZONTAL){
-            add(tile);
-            displayedTiles.add(tile);
-        }
-        else{
-            tileBuffer.add(tile);
-        }
-    }
-    /**
-     * Removes Tile corresponding to tile. Tile is removed from displayedTiles
-     * or tileBuffer depending on where it's located. If located in displayedTiles
-     * displayedTiles is supplied with the next Tile from tileBuffer adter removal.
-     * @param tile to be removed
-     */
-    private void removeTile(Tile tile){
-        if (!displayedTiles.contains(tile)){
-            tileBuffer.remove(tile);
-        }else{
-            try {
-                Tile toRemove = displayedTiles.get(displayedTiles.indexOf(tile));
-                displayedTiles.remove(toRemove);
-                remove(toRemove);
-                if (!tileBuffer.isEmpty()) {
-                    Tile next = tileBuffer.removeFirst();
-                    add(next);
-                    displayedTiles.add(next);
-                }
-            }catch(IndexOutOfBoundsException e){
-                System.out.println("Exception catched: Invalid tile number");
-            }
-        }
-    }
-    /**
-     * Creates and displays new InputPane, a transparent glasspane on top of
-     * this Canvas.
-     * @param firstDigit of Tile to be shown on InputPane
-     * @return created InputPane
-     */
-    public InputPane showInputPane(int firstDigit){
-        InputPane glassPanel = new InputPane(firstDigit, displayedTiles.size());
-        setGlassPane(glassPanel);
-        glassPanel.setVisible(true);
-        return glassPanel;
-    }
-    /**
-     * Keylistener listening for digit input, ignoring everything else. Upon
-     * digit input a new InputPane is displayed using
-     * showInputPane(digitPressed).
-     */
-    private class KeyPadListener implements KeyListener{
-        public void keyPressed(KeyEvent event){
-            //Write input number
-            try{
-                int number = Integer.parseInt(event.getKeyChar()+"");
-                showInputPane(number);
-
-            }catch(NumberFormatException e){
-                System.out.println("Exception catched: Not a number");
-            }
-            if (Manager.instance.autoAddOn()){
-                if (event.getKeyCode() == KeyEvent.VK_ENTER){
-                    showInputPane(Manager.instance.autoNext()).autoAdd();
-                }
-            }
-        }
-        public void keyReleased(KeyEvent event){
-
-        }
-        public void keyTyped(KeyEvent event){
-
-        }
-    }
-}
+package Graphics;
+
+import Logic.BroadcastingListReceiver;
+import Logic.Entry;
+import Logic.Manager;
+import Logic.Metrics;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.geom.Area;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+public class Canvas extends JFrame implements BroadcastingListReceiver<Entry> {
+
+    /**
+     * Desired number of Tiles to fit along screen width
+     */
+    public static final int SPACES_HORIZONTAL = 5;
+    /**
+     * Desired number of Tiles to fint along screen height
+     */
+    public static final int SPACES_VERTICAL = 4;
+    /**
+     * System property setting for how many seconds each page of Tiles is
+     * shown when there are more entries than fit on screen, 0 or unset to
+     * always show the first page
+     */
+    public static final String PAGING_PROPERTY = "quemanager.paging.seconds";
+    /**
+     * System property making QueManager print the time from process start to
+     * Canvas being shown and ready for input, then exit. Used for measuring
+     * startup and for the run recording the class data sharing archive.
+     */
+    public static final String STARTUP_EXIT_PROPERTY = "quemanager.startup.exit";
+    /**
+     * System property making the window shaped to the occupied cells and the
+     * Tile being typed, so that only those are composited over whatever is
+     * shown beneath rather than the whole screen
+     */
+    public static final String SHAPED_WINDOW_PROPERTY = "quemanager.window.shaped";
+    private static final String ICON_PATH = "Resources/QueManagerSmall.PNG";
+    /**
+     * Content pane on which Tiles are displayed
+     */
+    private TileBoard board = new TileBoard();
+    /**
+     * If the window is shaped to what is shown on it
+     */
+    private boolean shaped;
+    /**
+     * Glasspane numbers are typed on, null until the first number is typed
+     */
+    private InputPane inputPane;
+    /**
+     * Putting Canvas to rest while there is nothing to show
+     */
+    private final IdleMode idleMode;
+    /**
+     * Class responsible for displaying added Tiles on a grid defined by
+     * SPACES_HORIZONTAL and SPACES_VERTICAL. Creates and displays InputPane
+     * when any number is typed. Rests in IdleMode while there is nothing to
+     * show.
+     * Implements BroadcastingListReceiver
+     */
+    public Canvas(){
+        setContentPane(board);
+        board.setPaging(Integer.getInteger(PAGING_PROPERTY, 0));
+        idleMode = new IdleMode(board, () -> inputPane != null && inputPane.isVisible(), this::idleChanged);
+        setFocusable(true);
+        setTitle("QueManager");
+
+        Geometry geometry = Geometry.get();
+        setSize(geometry.screenWidth, geometry.screenHeight);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setUndecorated(true);
+        setBackground(new Color(0,0,0,0));
+        addKeyListener(new KeyPadListener());
+        addPropertyChangeListener("graphicsConfiguration", event -> displayChanged());
+        if (Boolean.getBoolean(SHAPED_WINDOW_PROPERTY))
+            shapeWindow();
+        if (Boolean.getBoolean(STARTUP_EXIT_PROPERTY))
+            addWindowListener(new StartupExit());
+
+        requestFocus();
+        setVisible(true);
+        loadIcon();
+        idleMode.check();
+    }
+    /**
+     * Disposes Canvas, letting go of everything keeping it reachable from
+     * Animator
+     */
+    @Override
+    public void dispose(){
+        idleMode.close();
+        super.dispose();
+    }
+    /**
+     * Creates Canvas on the event dispatch thread without waiting for it, so
+     * that the caller can go on starting up while the window is shown
+     * @return receiver handing changes to the Canvas, to be delivered to on
+     * the event dispatch thread only
+     */
+    public static BroadcastingListReceiver<Entry> createLater(){
+        DeferredCanvas deferred = new DeferredCanvas();
+        EventQueue.invokeLater(() -> {
+            try {
+                deferred.canvas = new Canvas();
+            }catch(HeadlessException | AWTError e){
+                //Nothing to show entries on, same as failing on the main thread
+                System.out.println("Exception catched: No display, " + e.getMessage());
+                System.exit(1);
+            }
+        });
+        return deferred;
+    }
+    /**
+     * Loads the window icon off the event dispatch thread, the window being
+     * shown without it until it is loaded
+     */
+    private void loadIcon(){
+        Thread loader = new Thread(() -> {
+            try {
+                Image icon = ImageIO.read(new File(ICON_PATH));
+                if (icon != null)
+                    EventQueue.invokeLater(() -> setIconImage(icon));
+            }catch(IOException e){
+                System.out.println("Exception catched: Icon not loaded, " + e.getMessage());
+            }
+        }, "QueManager icon");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    /**
+     * Takes on the size of the screen Canvas is now shown on, moving Tiles
+     * to their new cells if the size changed
+     */
+    private void displayChanged(){
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null || !Geometry.update(configuration.getBounds()))
+            return;
+        setBounds(configuration.getBounds());
+        board.relayout();
+        updateShape();
+    }
+    /**
+     * Shapes the window to the occupied cells from now on, if shaped windows
+     * are supported
+     */
+    private void shapeWindow(){
+        if (!isShapingSupported()){
+            System.out.println("Exception catched: Shaped windows not supported, showing full screen");
+            return;
+        }
+        shaped = true;
+        board.addPropertyChangeListener(TileBoard.OCCUPIED_CELLS_PROPERTY, event -> updateShape());
+        updateShape();
+    }
+    private boolean isShapingSupported(){
+        return getGraphicsConfiguration().getDevice()
+                .isWindowTranslucencySupported(GraphicsDevice.WindowTranslucency.PERPIXEL_TRANSPARENT);
+    }
+    /**
+     * Shapes the window to a single pixel while IDLE, keeping it shown and
+     * focused for typing but leaving nothing to be composited over what is
+     * shown beneath, and back to the whole screen once ACTIVE. A shaped
+     * window is shaped to what is shown on it anyway.
+     * @param state IdleMode turned to
+     */
+    private void idleChanged(IdleMode.State state){
+        if (shaped || !isShapingSupported())
+            return;
+        setShape(state == IdleMode.State.IDLE ? new Rectangle(0, 0, 1, 1) : null);
+    }
+    /**
+     * Shapes the window to the occupied cells and, while a number is being
+     * typed, the Tile being typed and the cell it flies to. A window shaped
+     * to nothing is shaped to a single pixel instead, keeping it shown and
+     * focused for typing.
+     */
+    private void updateShape(){
+        if (!shaped)
+            return;
+        Area area = board.occupiedArea();
+        Component glassPane = getGlassPane();
+        if (glassPane instanceof InputPane && glassPane.isVisible())
+            area.add(new Area(((InputPane)glassPane).flightBounds()));
+        if (area.isEmpty())
+            area.add(new Area(new Rectangle(0, 0, 1, 1)));
+        setShape(area);
+    }
+    /**
+     * Adds new Tile, repainting only the cell it is placed in if it fits on
+     * screen
+     * @param item to be added
+     */
+    @Override
+    public void doOnAdd(Entry item) {
+        idleMode.wake();
+        //Update tiles
+        board.addNumber(item.getNumber(), item.getLane());
+    }
+    /**
+     * Fades out Tile corresponding to item, then removes it, repainting only
+     * the cells that changed
+     * @param item to be removed
+     */
+    @Override
+    public void doOnRemove(Entry item) {
+        //Update tiles
+        board.fadeOutNumber(item.getNumber());
+    }
+    /**
+     * Adds new Tiles all at once, laying out the cells that changed once
+     * @param items added
+     */
+    @Override
+    public void doOnAddAll(List<Entry> items) {
+        idleMode.wake();
+        board.addNumbers(items);
+    }
+    /**
+     * Fades out the Tiles corresponding to items together in one animation,
+     * then removes them, laying out the cells that changed once
+     * @param items removed
+     */
+    @Override
+    public void doOnRemoveAll(List<Entry> items) {
+        board.fadeOutNumbers(items);
+    }
+    /**
+     * Displays InputPane, a transparent glasspane on top of this Canvas,
+     * creating it the first time, and types number on it.
+     * @param number first digit of a new number on InputPane, or a digit
+     *               typed after those typed so far
+     * @return InputPane
+     */
+    public InputPane showInputPane(int number){
+        if (inputPane == null){
+            inputPane = new InputPane(board);
+            setGlassPane(inputPane);
+            inputPane.addComponentListener(new ComponentAdapter() {
+                @Override
+                public void componentHidden(ComponentEvent event){
+                    updateShape();
+                    idleMode.check();
+                }
+            });
+            if (shaped)
+                inputPane.addPropertyChangeListener(InputPane.FLIGHTS_PROPERTY, event -> updateShape());
+        }
+        inputPane.type(number);
+        if (shaped)
+            updateShape();
+        return inputPane;
+    }
+    /**
+     * Receiver handing changes to a Canvas created later on the event
+     * dispatch thread. Changes are delivered on the event dispatch thread
+     * after the Canvas has been created, so it is always there.
+     */
+    private static class DeferredCanvas implements BroadcastingListReceiver<Entry> {
+        private Canvas canvas;
+
+        @Override
+        public void doOnAdd(Entry item){
+            canvas.doOnAdd(item);
+        }
+        @Override
+        public void doOnRemove(Entry item){
+            canvas.doOnRemove(item);
+        }
+        @Override
+        public void doOnAddAll(List<Entry> items){
+            canvas.doOnAddAll(items);
+        }
+        @Override
+        public void doOnRemoveAll(List<Entry> items){
+            canvas.doOnRemoveAll(items);
+        }
+    }
+    /**
+     * Prints the time from process start to Canvas being opened, then exits
+     */
+    private static class StartupExit extends WindowAdapter {
+        @Override
+        public void windowOpened(WindowEvent event){
+            Instant start = ProcessHandle.current().info().startInstant().orElse(Instant.now());
+            System.out.println("Startup: " + Duration.between(start, Instant.now()).toMillis() + " ms");
+            System.exit(0);
+        }
+    }
+    /**
+     * Keylistener listening for digit input, ignoring everything else. Upon
+     * digit input a new InputPane is displayed using
+     * showInputPane(digitPressed).
+     */
+    private class KeyPadListener implements KeyListener{
+        public void keyPressed(KeyEvent event){
+            if (Manager.instance.isDisplayOnly())
+                return;
+            idleMode.wake();
+            Metrics.instance.keystroke();
+            //Write input number
+            int number = Character.digit(event.getKeyChar(), 10);
+            if (number >= 0)
+                showInputPane(number);
+            else
+                System.out.println("Exception catched: Not a number");
+            if (Manager.instance.autoAddOn()){
+                if (event.getKeyCode() == KeyEvent.VK_ENTER){
+                    showInputPane(Manager.instance.autoNext()).autoAdd();
+                }
+            }
+        }
+        public void keyReleased(KeyEvent event){
+
+        }
+        public void keyTyped(KeyEvent event){
+
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package Graphics;
+
+import Logic.EntryIndex;
+import Logic.Lane;
+import Logic.Manager;
+
+import java.util.HashMap;
+
+/**
+ * Which entry is shown in which cell of the grid of TileBoard.CELLS cells,
+ * shared by TileBoard and TileScene, which each show the cells their own
+ * way. Entries are kept in order of Lane and, within each Lane, oldest
+ * first, including those fading out and those not fitting on screen, with
+ * the page of entries shown, the cells reserved for Tiles flying in and the
+ * entries added again while still fading out.
+ * Holds no Tiles and never repaints, to be used from one thread only.
+ */
+final class CellLayout {
+    private static final Lane[] LANES = Lane.values();
+
+    /**
+     * Entry numbers in the order they are displayed, one lane per Lane
+     */
+    private final EntryIndex order = new EntryIndex(Manager.ENTRY_SPACE, LANES.length);
+    /**
+     * Lane ordinal plus 1 of each entry number added again while still
+     * fading out, to be added again once faded out, 0 if not added again
+     */
+    private final byte[] addedWhileFading = new byte[Manager.ENTRY_SPACE];
+    /**
+     * Lanes of entry numbers flying in, holding their cells until they are
+     * added or landed
+     */
+    private final HashMap<Integer, Lane> reserved = new HashMap<>();
+    /**
+     * If each entry number is flying in, its own Tile not to be shown until
+     * landed
+     */
+    private final boolean[] flying = new boolean[Manager.ENTRY_SPACE];
+    /**
+     * Position in order of the entry shown in the first cell
+     */
+    private int pageStart;
+
+    /**
+     * Adds entry number last in lane, the page shown moving one position on
+     * if it is added before it. If already contained, as while still fading
+     * out, it is kept to be added again, see takeAddedWhileFading.
+     * @param number of entry to be added
+     * @param lane of entry
+     * @return if added
+     */
+    boolean add(int number, Lane lane){
+        if (!order.add(number, lane.ordinal())){
+            addedWhileFading[number] = (byte)(lane.ordinal() + 1);
+            return false;
+        }
+        reserved.remove(number);
+        if (order.indexOf(number) < pageStart)
+            //Every entry on screen moves one position on
+            pageStart++;
+        return true;
+    }
+    /**
+     * Removes entry number, the page shown moving one position back if it
+     * was before it. The page shown may be left past the last entry, see
+     * leaveEmptyPage.
+     * @param number of entry to be removed
+     * @return if removed
+     */
+    boolean remove(int number){
+        int position = order.indexOf(number);
+        if (position == -1)
+            return false;
+        order.remove(number);
+        if (position < pageStart)
+            //Every entry on screen moves one position back
+            pageStart--;
+        return true;
+    }
+    /**
+     * Shows the first page again if every entry of the page shown has been
+     * removed
+     * @return if the page shown changed
+     */
+    boolean leaveEmptyPage(){
+        if (pageStart < order.size() || pageStart == 0)
+            return false;
+        pageStart = 0;
+        return true;
+    }
+    /**
+     * Forgets that entry number was added again while fading out, as when it
+     * is removed once more
+     * @param number of entry
+     */
+    void clearAddedWhileFading(int number){
+        addedWhileFading[number] = 0;
+    }
+    /**
+     * Forgets that entry number was added again while fading out
+     * @param number of entry faded out
+     * @return Lane it was added again in, null if it was not
+     */
+    Lane takeAddedWhileFading(int number){
+        int lane = addedWhileFading[number];
+        addedWhileFading[number] = 0;
+        return lane == 0 ? null : LANES[lane - 1];
+    }
+    /**
+     * Shows the next page of entries, or the first page after the last
+     * @return if the page shown changed
+     */
+    boolean turnPage(){
+        int start = pageStart + TileBoard.CELLS < order.size() ? pageStart + TileBoard.CELLS : 0;
+        if (start == pageStart)
+            return false;
+        pageStart = start;
+        return true;
+    }
+    /**
+     * Shows the first page of entries
+     * @return if the page shown changed
+     */
+    boolean firstPage(){
+        if (pageStart == 0)
+            return false;
+        pageStart = 0;
+        return true;
+    }
+    /**
+     * @param lane of the next entry to be added
+     * @return index of the cell the next entry added in lane will be shown
+     * in, after all entries reserved a cell, TileBoard.CELLS or more if it
+     * will not fit on screen
+     */
+    int nextFreeCell(Lane lane){
+        int position = 0;
+        for (int before = 0; before <= lane.ordinal(); before++)
+            position += order.laneSize(before);
+        for (Lane reservedLane: reserved.values()){
+            if (reservedLane.ordinal() <= lane.ordinal())
+                position++;
+        }
+        return position - pageStart;
+    }
+    /**
+     * Reserves the next free cell of lane for entry number, about to be
+     * added while its Tile flies in, so that entries added in quick
+     * succession are each given a cell of their own before any of them is
+     * added. The reservation lasts until number is added or its Tile has
+     * landed, and number is flying until landed, see land.
+     * @param number of entry to be added
+     * @param lane of entry
+     * @return index of the cell reserved, or of the cell of number if it is
+     * already contained
+     */
+    int reserveCell(int number, Lane lane){
+        if (order.contains(number))
+            return order.indexOf(number) - pageStart;
+        reserved.remove(number);
+        int cell = nextFreeCell(lane);
+        reserved.put(number, lane);
+        flying[number] = true;
+        return cell;
+    }
+    /**
+     * Ends the flight of entry number, letting go of its reservation should
+     * it not have been added
+     * @param number of entry whose Tile has landed
+     * @return if number was flying
+     */
+    boolean land(int number){
+        reserved.remove(number);
+        boolean landed = flying[number];
+        flying[number] = false;
+        return landed;
+    }
+    /**
+     * @param number of entry
+     * @return if the Tile of number is flying in, its own Tile not to be
+     * shown
+     */
+    boolean isFlying(int number){
+        return flying[number];
+    }
+    /**
+     * @param number of entry
+     * @return cell of entry number, negative if it is on an earlier page or
+     * not contained, TileBoard.CELLS or more if on a later page
+     */
+    int cellOf(int number){
+        int position = order.indexOf(number);
+        return position == -1 ? Integer.MIN_VALUE : position - pageStart;
+    }
+    /**
+     * @param cell of the page shown, below shownCells()
+     * @return number of the entry shown in cell
+     */
+    int numberAt(int cell){
+        return order.get(pageStart + cell);
+    }
+    /**
+     * @param number of entry contained
+     * @return Lane of entry
+     */
+    Lane laneOf(int number){
+        return LANES[order.laneOf(number)];
+    }
+    /**
+     * @return number of cells showing an entry, filled from the first
+     */
+    int shownCells(){
+        return Math.min(TileBoard.CELLS, Math.max(0, order.size() - pageStart));
+    }
+    /**
+     * @return number of entries, on screen or not
+     */
+    int size(){
+        return order.size();
+    }
+}
@@ -0,0 +1,67 @@
+package Graphics;
+
+import java.awt.*;
+
+/**
+ * Size of the screen and of the Tiles on it, computed the first time it is
+ * needed rather than when classes are loaded, and cached until the display
+ * changes. Querying the screen size is slow compared to reading a field, so
+ * it is never done while painting or typing.
+ */
+final class Geometry {
+    /**
+     * Screen size assumed when running headless, as when benchmarking
+     */
+    private static final Dimension HEADLESS_SCREEN_SIZE = new Dimension(1920, 1080);
+    /**
+     * Geometry in use, null until first needed
+     */
+    private static volatile Geometry current;
+
+    final int screenWidth;
+    final int screenHeight;
+    final int tileWidth;
+    final int tileHeight;
+
+    private Geometry(int screenWidth, int screenHeight){
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        tileWidth = screenWidth/Canvas.SPACES_HORIZONTAL - 2*Tile.MARGIN;
+        tileHeight = screenHeight/Canvas.SPACES_VERTICAL - 2*Tile.MARGIN;
+    }
+    /**
+     * @return Geometry of the default screen, computed if not yet known
+     */
+    static Geometry get(){
+        Geometry geometry = current;
+        if (geometry == null){
+            synchronized (Geometry.class){
+                if (current == null)
+                    current = ofDefaultScreen();
+                geometry = current;
+            }
+        }
+        return geometry;
+    }
+    /**
+     * Takes on the size of screen, as when the display resolution changes or
+     * Canvas is moved to another screen
+     * @param screen bounds of the screen Canvas is shown on
+     * @return if Geometry changed
+     */
+    static synchronized boolean update(Rectangle screen){
+        Geometry geometry = get();
+        if (geometry.screenWidth == screen.width && geometry.screenHeight == screen.height)
+            return false;
+        current = new Geometry(screen.width, screen.height);
+        TileRenderer.invalidate();
+        return true;
+    }
+    private static Geometry ofDefaultScreen(){
+        if (GraphicsEnvironment.isHeadless())
+            return new Geometry(HEADLESS_SCREEN_SIZE.width, HEADLESS_SCREEN_SIZE.height);
+        Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration().getBounds();
+        return new Geometry(screen.width, screen.height);
+    }
+}
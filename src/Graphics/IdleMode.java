@@ -0,0 +1,127 @@
+package Graphics;
+
+import Logic.Metrics;
+
+import javax.swing.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * State machine putting whatever shows a TileBoard to rest while there is
+ * nothing to show, so that the overlay costs next to nothing between orders
+ * on a machine busy with other things, such as playing video.
+ * ACTIVE turns IDLE once there has been no entry on the TileBoard, shown or
+ * fading out, no animation running and nothing else keeping it busy, such
+ * as a number being typed, for IDLE_DELAY_MILLIS. The delay keeps it from
+ * turning IDLE between a typed Tile landing and its entry being added, or
+ * between orders in quick succession. While IDLE, pages are not turned, the
+ * event dispatch thread is not probed by Metrics and the listener is told
+ * to stop painting and keep only what is needed to capture keys.
+ * IDLE turns ACTIVE again on wake(), to be called before handling a key
+ * pressed or an entry added, so that it is handled and painted within the
+ * same frame as when ACTIVE.
+ * To be used from the event dispatch thread only.
+ */
+final class IdleMode {
+    /**
+     * System property turning idle mode off, keeping everything running
+     * while there is nothing to show
+     */
+    static final String DISABLED_PROPERTY = "quemanager.idle.disabled";
+    /**
+     * Time there has to be nothing to show before turning IDLE
+     */
+    private static final int IDLE_DELAY_MILLIS = 1000;
+
+    enum State {
+        ACTIVE,
+        IDLE
+    }
+
+    private final TileBoard board;
+    /**
+     * If anything but entries and animations keeps it from turning IDLE
+     */
+    private final BooleanSupplier busy;
+    /**
+     * Called with the new State each time the State changes
+     */
+    private final Consumer<State> listener;
+    private final boolean disabled = Boolean.getBoolean(DISABLED_PROPERTY);
+    private State state = State.ACTIVE;
+    /**
+     * Timer turning IDLE once there has been nothing to show for
+     * IDLE_DELAY_MILLIS
+     */
+    private final Timer delay = new Timer(IDLE_DELAY_MILLIS, event -> enter());
+    /**
+     * Listener added to Animator, kept to be removed again on close()
+     */
+    private final Runnable animatorIdle = this::check;
+
+    /**
+     * Constructs IdleMode in State ACTIVE, checking if it is to turn IDLE
+     * each time the cells of board change or the last animation ends
+     * @param board on which entries are shown
+     * @param busy if anything else keeps it from turning IDLE
+     * @param listener called with the new State each time it changes
+     */
+    IdleMode(TileBoard board, BooleanSupplier busy, Consumer<State> listener){
+        this.board = board;
+        this.busy = busy;
+        this.listener = listener;
+        delay.setRepeats(false);
+        board.addPropertyChangeListener(TileBoard.OCCUPIED_CELLS_PROPERTY, event -> check());
+        Animator.addIdleListener(animatorIdle);
+    }
+    /**
+     * Stops checking once whatever shows board is disposed, letting go of
+     * the listener added to Animator so that IdleMode, board and its owner
+     * can be collected
+     */
+    void close(){
+        delay.stop();
+        Animator.removeIdleListener(animatorIdle);
+    }
+    /**
+     * Turns IDLE after IDLE_DELAY_MILLIS if there is nothing to show, unless
+     * woken in between
+     */
+    void check(){
+        if (state == State.ACTIVE && !delay.isRunning() && isRestful())
+            delay.start();
+    }
+    /**
+     * @return if there is nothing to show
+     */
+    private boolean isRestful(){
+        return !disabled && board.entryCount() == 0 && Animator.runningCount() == 0 && !busy.getAsBoolean();
+    }
+    /**
+     * Turns IDLE if there still is nothing to show
+     */
+    private void enter(){
+        if (state == State.IDLE || !isRestful())
+            return;
+        state = State.IDLE;
+        board.setPagingSuspended(true);
+        Metrics.instance.setProbingPaused(true);
+        listener.accept(state);
+    }
+    /**
+     * Turns ACTIVE if IDLE, to be called before handling anything to be
+     * shown
+     */
+    void wake(){
+        delay.stop();
+        if (state == State.ACTIVE)
+            return;
+        state = State.ACTIVE;
+        board.setPagingSuspended(false);
+        Metrics.instance.setProbingPaused(false);
+        listener.accept(state);
+    }
+    State getState(){
+        return state;
+    }
+}
@@ -1,170 +1,263 @@
-package Graphics;
-
-import Logic.Entry;
-import Logic.Manager;
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-
-/**
- * JPanel to be added as glasspane to Canvas as an overlay displaying a new
- * Tile on which to dynamically set its number. by typing number keys. With
- * number keys pressed can remove or add Tiles to Canvas through Manager.
- */
-public class InputPane extends JPanel {
-    /**
-     * InputTile being displayed
-     */
-    private Tile tile;
-    /**
-     * Keeping track of numbers being typed
-     */
-    private String numberAsString;
-    /**
-     * Number received from Canvas giving the next vacant position in the line
-     * on the Canvas grid
-     */
-    private int nextFreeSpace;
-    private boolean animating;
-
-    public InputPane(int firstDigit, int nextFreeSpace){
-        setFocusable(true);
-        addKeyListener(new KeyPadListener());
-        setFocusTraversalKeysEnabled(false);
-        setLayout(null);
-        setBounds(0,0,WIDTH,HEIGHT);
-        setBackground(new Color(0,0,0,0));
-        numberAsString = "" + firstDigit;
-        setOpaque(false);
-        this.nextFreeSpace = nextFreeSpace;
-
-        refreshTile(firstDigit);
-
-        setRequestFocusEnabled(true);
-        requestFocus();
-    }
-
-    protected void paintComponent(Graphics graphics){
-        super.paintComponent(graphics);
-        requestFocus();
-    }
-    /**
-     * Refreshes or creates a new Tile to be displayed
-     * @param number of new Tile to be displayed
-     */
-    private void refreshTile(int number){
-        if (tile != null)
-            remove(tile);
-        tile = new Tile(new Entry(number));
-        Dimension screenSize = new Dimension(Toolkit.getDefaultToolkit().getScreenSize());
-        tile.setBounds(
-                screenSize.width/2-tile.getWidth()/2,
-                screenSize.height/2-tile.getHeight()/2,
-                tile.getWidth(),
-                tile.getHeight());
-        add(tile);
-    }
-    /**
-     * Animate tile from starting position (middle of screen) to destination
-     * position (place on Canvas grid)
-     * @param after function to be called after animation is finished
-     */
-    private void animate(Runnable after){
-        new Timer(4, new ActionListener() {
-            double distX;
-            double distY;
-            double animSpeed = 2;
-
-            @Override
-            public void actionPerformed(ActionEvent event) {
-                distX = (Tile.WIDTH+2*Tile.MARGIN)*nextFreeSpace-tile.getX();
-                distY = 0-tile.getY();
-                tile.setBounds((int)(tile.getX()+((animSpeed*distX)/10)),
-                        (int)(tile.getY()+((animSpeed*distY*0.70)/10)),
-                        Tile.WIDTH,Tile.HEIGHT);
-                repaint();
-                //after reaching animation destination
-                if (Math.abs(distX) <= 5 && Math.abs(distY) <= 5){
-                    cut(event);
-                }
-            }
-            private void cut(ActionEvent event){
-                after.run();
-                ((Timer)event.getSource()).stop();
-            }
-        }).start();
-    }
-    /**
-     * Animats after adding by Managers autoNext
-     */
-    public void autoAdd(){
-        animate(() -> {
-            Manager.instance.add(Integer.parseInt(numberAsString));
-            animating = false;
-            setVisible(false);
-        });
-        animating = true;
-    }
-    /**
-     * Registers typed numbers.
-     * If registered typed numbers:
-     * 1. Key delete removes Tile from Canvas
-     * 2. Key enter adds new Tile (corresponding to numberAsString) to Canvas
-     * 3. Key backSpace removes läst digit from inputTile being displayed
-     */
-    private class KeyPadListener implements KeyListener {
-        public void keyPressed(KeyEvent event) {
-            if (!animating) {
-                if (event.getKeyCode() == KeyEvent.VK_ENTER && !Manager.instance.autoAddOn()) {
-                    //Add new entry corresponding to numberAsString
-
-                    //Starting animation with callback to be fired when done
-                    animate(() -> {
-                        Manager.instance.add(Integer.parseInt(numberAsString));
-                        animating = false;
-                        setVisible(false);
-                    });
-                    animating = true;
-
-                } else if (event.getKeyCode() == KeyEvent.VK_DELETE ||
-                        event.getKeyCode() == KeyEvent.VK_CLEAR /*Not sure but thingk VK_CLEAR is Mac-version of Delete*/) {
-                    //Delete entry corresponding to numberAsString
-                    Manager.instance.remove(Integer.parseInt(numberAsString));
-                    setVisible(false);
-                } else if (event.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
-                    //remove last digit
-                    if (numberAsString.length() > 1) {
-                        numberAsString = numberAsString.substring(0, numberAsString.length() - 1);
-                    } else {
-                        setVisible(false);
-                    }
-                } else {
-                    try {
-                        //Write input numberAsString and show on InputTile
-                        Integer.parseInt(event.getKeyChar()+"");
-                        if (numberAsString.length() < 2) {
-                            if (numberAsString.startsWith(0 + "")) {
-                                numberAsString = event.getKeyChar()+"";
-                            }else
-                                numberAsString += event.getKeyChar();
-                        }
-                    } catch (NumberFormatException e) {
-                        System.out.println("Exception catched: Not a number");
-                    }
-                }
-                refreshTile(Integer.parseInt(numberAsString));
-                repaint();
-            }
-        }
-        public void keyReleased(KeyEvent event){
-
-        }
-        public void keyTyped(KeyEvent event){
-
-        }
-    }
-
-}
+package Graphics;
+
+import Input.Keypad;
+import Logic.Command;
+import Logic.Lane;
+import Logic.Manager;
+import Logic.Metrics;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * JPanel to be added as glasspane to Canvas as an overlay displaying a new
+ * Tile on which to dynamically set its number. by typing number keys. With
+ * number keys pressed can remove or add Tiles to Canvas through Manager.
+ * Key * switches the Lane the Tile is added in. Digits typed are kept on a
+ * Keypad of the keyboard's own, and commands go through the same queue as
+ * those of other input devices.
+ * Entered Tiles fly to their cells while the next number is typed, any
+ * number of them at once, each to a cell reserved on the TileBoard so that
+ * Tiles entered in quick succession land in the cells they will be shown in.
+ * The command of a Tile is submitted as it is entered, so that commands
+ * keep the order their keys were pressed in, and the flight only shows the
+ * Tile on its way over its cell.
+ * InputPane is shown for as long as a number is typed or a Tile is flying.
+ * A single InputPane is kept for as long as Canvas, and Tiles that have
+ * landed are kept for reuse, so that typing a key allocates nothing.
+ */
+public class InputPane extends JPanel {
+    /**
+     * Name of the bound property of the number of Tiles flying
+     */
+    static final String FLIGHTS_PROPERTY = "flights";
+    /**
+     * Tile showing the number being typed, null while nothing is typed
+     */
+    private Tile tile;
+    /**
+     * Keeping track of numbers being typed and the Lane the Tile is added in
+     */
+    private final Keypad keypad = new Keypad();
+    /**
+     * Board of Canvas giving the next vacant position in the line of each
+     * Lane on the Canvas grid
+     */
+    private final TileBoard board;
+    /**
+     * Tiles flying to their cells, in the order they were entered
+     */
+    private final ArrayList<Flight> flights = new ArrayList<>();
+    /**
+     * Tiles no longer shown, to be reused for the next number typed
+     */
+    private final ArrayDeque<Tile> spareTiles = new ArrayDeque<>();
+    /**
+     * Duration of the animation flying the Tile to its place on Canvas
+     */
+    static final long FLY_MILLIS = 200;
+
+    InputPane(TileBoard board){
+        setFocusable(true);
+        addKeyListener(new KeyPadListener());
+        setFocusTraversalKeysEnabled(false);
+        setLayout(null);
+        setBounds(0,0,WIDTH,HEIGHT);
+        setBackground(new Color(0,0,0,0));
+        setOpaque(false);
+        this.board = board;
+
+        setRequestFocusEnabled(true);
+    }
+
+    protected void paintComponent(Graphics graphics){
+        super.paintComponent(graphics);
+        Metrics.instance.painted();
+    }
+    /**
+     * Types number, starting a new number to be typed if none is, and shows
+     * InputPane
+     * @param number first digit of a new number, or a whole number to start
+     *               with, otherwise a digit typed after those typed so far
+     */
+    void type(int number){
+        if (keypad.isEmpty())
+            keypad.setNumber(number);
+        else
+            keypad.type(number);
+        refreshTile();
+        setVisible(true);
+        requestFocus();
+    }
+    /**
+     * Refreshes the Tile showing the number being typed, taking a spare
+     * Tile, or creating one if there is none, once a new number is typed
+     */
+    private void refreshTile(){
+        if (tile != null){
+            tile.setNumber(keypad.getNumber(), keypad.getLane());
+            return;
+        }
+        tile = spareTiles.poll();
+        if (tile == null)
+            tile = new Tile(keypad.getNumber(), keypad.getLane());
+        else
+            tile.setNumber(keypad.getNumber(), keypad.getLane());
+        Geometry geometry = Geometry.get();
+        tile.setBounds(
+                geometry.screenWidth/2-tile.getWidth()/2,
+                geometry.screenHeight/2-tile.getHeight()/2,
+                tile.getWidth(),
+                tile.getHeight());
+        add(tile);
+    }
+    /**
+     * Takes the Tile being typed off InputPane, as when the number is
+     * deleted
+     */
+    private void dropTile(){
+        if (tile == null)
+            return;
+        remove(tile);
+        repaint(tile.getBounds());
+        spareTiles.push(tile);
+        tile = null;
+    }
+    /**
+     * Hides InputPane once nothing is typed and no Tile is flying
+     */
+    private void hideIfIdle(){
+        if (tile == null && flights.isEmpty())
+            setVisible(false);
+    }
+    /**
+     * Submits adding the entry of the Tile being typed, flies the Tile to the
+     * cell reserved for it and makes way for the next number to be typed
+     */
+    private void launch(){
+        Lane lane = keypad.getLane();
+        Command command = keypad.enter();
+        Tile flying = tile;
+        tile = null;
+        Rectangle start = flying.getBounds();
+        Rectangle destination = TileBoard.cellBounds(board.reserveCell(command.getNumber(), lane));
+        Manager.instance.submit(command);
+        Flight flight = new Flight(start, destination);
+        flights.add(flight);
+        int distX = destination.x-start.x;
+        int distY = destination.y-start.y;
+        Animator.start(FLY_MILLIS, progress -> flying.setBounds(
+                start.x+(int)(distX*Animator.easeOut(progress, 3)),
+                start.y+(int)(distY*Animator.easeOut(progress, 2)),
+                Tile.width(),Tile.height()), this, () -> {
+            board.land(command.getNumber());
+            remove(flying);
+            repaint(flying.getBounds());
+            spareTiles.push(flying);
+            flights.remove(flight);
+            firePropertyChange(FLIGHTS_PROPERTY, flights.size() + 1, flights.size());
+            hideIfIdle();
+        });
+        firePropertyChange(FLIGHTS_PROPERTY, flights.size() - 1, flights.size());
+    }
+    /**
+     * Bounds of the Tile being typed together with the bounds of the cell it
+     * flies to when added, and of every Tile flying and its cell
+     * @return bounds covering every Tile wherever it is shown
+     */
+    Rectangle flightBounds(){
+        Rectangle bounds = null;
+        if (tile != null){
+            bounds = tile.getBounds();
+            bounds.add(TileBoard.cellBounds(board.nextFreeCell(keypad.getLane())));
+        }
+        for (Flight flight: flights){
+            if (bounds == null)
+                bounds = new Rectangle(flight.start);
+            else
+                bounds.add(flight.start);
+            bounds.add(flight.destination);
+        }
+        return bounds == null ? new Rectangle() : bounds;
+    }
+    /**
+     * Animats after adding by Managers autoNext
+     */
+    public void autoAdd(){
+        launch();
+    }
+    /**
+     * Registers typed numbers. Keys are never ignored, Tiles entered flying
+     * to their cells while the next number is typed.
+     * If registered typed numbers:
+     * 1. Key delete removes Tile from Canvas
+     * 2. Key enter adds new Tile (corresponding to the number typed) to Canvas
+     * 3. Key backSpace removes läst digit from inputTile being displayed
+     * 4. Key * switches the Lane of the Tile being displayed
+     */
+    private class KeyPadListener implements KeyListener {
+        public void keyPressed(KeyEvent event) {
+            Metrics.instance.keystroke();
+            if (event.getKeyCode() == KeyEvent.VK_ENTER && !Manager.instance.autoAddOn()) {
+                //Add new entry corresponding to number typed
+                if (!keypad.isEmpty())
+                    //Adding the entry and starting animation
+                    launch();
+                return;
+            } else if (event.getKeyCode() == KeyEvent.VK_DELETE ||
+                    event.getKeyCode() == KeyEvent.VK_CLEAR /*Not sure but thingk VK_CLEAR is Mac-version of Delete*/) {
+                //Delete entry corresponding to number typed
+                if (!keypad.isEmpty())
+                    Manager.instance.submit(keypad.delete());
+                dropTile();
+                hideIfIdle();
+                return;
+            } else if (event.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+                //remove last digit
+                if (!keypad.backspace()) {
+                    keypad.clear();
+                    dropTile();
+                    hideIfIdle();
+                    return;
+                }
+            } else if (event.getKeyCode() == KeyEvent.VK_MULTIPLY || event.getKeyChar() == '*') {
+                //Switch to next lane
+                if (keypad.isEmpty())
+                    return;
+                keypad.nextLane();
+            } else {
+                //Write input digit and show on InputTile
+                int digit = Character.digit(event.getKeyChar(), 10);
+                if (digit >= 0) {
+                    keypad.type(digit);
+                } else {
+                    System.out.println("Exception catched: Not a number");
+                    return;
+                }
+            }
+            refreshTile();
+        }
+        public void keyReleased(KeyEvent event){
+
+        }
+        public void keyTyped(KeyEvent event){
+
+        }
+    }
+
+    /**
+     * A Tile flying from where it was typed to its cell
+     */
+    private static class Flight {
+        private final Rectangle start;
+        private final Rectangle destination;
+
+        private Flight(Rectangle start, Rectangle destination){
+            this.start = start;
+            this.destination = destination;
+        }
+    }
+}
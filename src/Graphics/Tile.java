@@ -1,141 +1,215 @@
-package Graphics;
-
-import Logic.Entry;
-
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
-/**
- * Class of objects each visually representing an Entry from the list of Entries
- * in Manager.
- */
-public class Tile extends JPanel {
-    /**
-     * Colour of round rect representing the Tile's shadow
-     */
-    private static final Color SHADOW_COLOUR = new Color(0,0,0,50);
-    /**
-     * Colour of round rect representing the Tile
-     */
-    private static final Color TILE_COLOUR = Color.WHITE;
-    /**
-     * The number printed on the Tile
-     */
-    private int number;
-    public static final int MARGIN = 5;
-    private static final int SHADOW_MARGIN = 3;
-    public static final int CORNER_SIZE = 20;
-    public static final int WIDTH =
-            new Dimension(Toolkit.getDefaultToolkit().getScreenSize()).width/ Canvas.SPACES_HORIZONTAL
-                    - (2*MARGIN);
-    public static final int HEIGHT =
-            new Dimension(Toolkit.getDefaultToolkit().getScreenSize()).height/ Canvas.SPACES_VERTICAL
-                    - (2*MARGIN);
-    /**
-     * Tile colour that is used non-destructively (changed while keeping original
-     * colour TILE_COLOUR)
-     */
-    private Color dynamicTileColour = TILE_COLOUR;
-    /**
-     * Tile colour that is used non-destructively (changed while keeping original
-     * colour TEXT_COLOUR)
-     */
-    private Color dynamicTextColour = Color.BLACK;
-
-    /**
-     * Construcs new Tile with transparent background
-     * @param entry
-     */
-    public Tile(Entry entry){
-        this.number = entry.getNumber();
-        setSize(WIDTH,HEIGHT);
-        setBackground(new Color(0,0,0,0));
-    }
-    /**
-     * Renders Tile by in order:
-     * 1. Turning on anti aliasing
-     * 2. Rendering shadow rect
-     * 3. Rendering Tile rect
-     * 4. Rendering Tile number
-     * @param graphics needed to render graphics
-     */
-    protected void paintComponent(Graphics graphics){
-        super.paintComponent(graphics);
-
-        Graphics2D g2d = (Graphics2D)graphics;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
-
-        //Render shadow
-        graphics.setColor(SHADOW_COLOUR);
-        graphics.fillRoundRect(MARGIN-SHADOW_MARGIN,MARGIN-SHADOW_MARGIN,
-                WIDTH- CORNER_SIZE /2+(2*SHADOW_MARGIN),
-                HEIGHT- CORNER_SIZE /2+(2*SHADOW_MARGIN),
-                CORNER_SIZE +(2*SHADOW_MARGIN),
-                CORNER_SIZE +(2*SHADOW_MARGIN));
-        //Render tile
-        graphics.setColor(dynamicTileColour);
-        graphics.fillRoundRect(MARGIN,MARGIN,WIDTH-CORNER_SIZE/2,
-                HEIGHT-CORNER_SIZE/2, CORNER_SIZE, CORNER_SIZE);
-
-        //Rendering tile number
-        int fontSize = 200;
-        Font font = new Font("Arial", Font.BOLD, fontSize);
-        FontMetrics fontMetric = getFontMetrics(font);
-        graphics.setFont(font);
-        graphics.setColor(dynamicTextColour);
-        graphics.drawString(""+number,(WIDTH-fontMetric.stringWidth(""+number))/2,
-                (HEIGHT-fontMetric.getHeight())/2+fontMetric.getAscent());
-    }
-    /**
-     * Starts an animation whereby Tile simultaneously fades to green and fades
-     * away and then performing a sent function given as parameter "after"
-     * @param after a function to be called after anumation is finished
-     */
-    public void animateFade(Runnable after){
-        new Timer(4, new ActionListener() {
-            private int iterations = 40;
-            private int MAX_COLOR_VALUE = 255;
-            private int step = MAX_COLOR_VALUE/ iterations;
-            private boolean pause = false;
-            @Override
-            public void actionPerformed(ActionEvent event) {
-                setOpaque(false);
-                double red = dynamicTileColour.getRed();
-                double blue = dynamicTileColour.getBlue();
-                double alpha = dynamicTileColour.getAlpha();
-
-                if (red <= step || blue <= step || alpha <= step){
-                    pause = true;
-                    cut(event);
-                }
-                repaint();
-
-                dynamicTileColour = new Color((int)red- (pause? 0:step),
-                        dynamicTileColour.getGreen(),
-                        (int)blue- (pause? 0:step),
-                        (int)alpha- (pause? 0:step));
-                dynamicTextColour = new Color(dynamicTextColour.getRed(),
-                        dynamicTextColour.getGreen(),
-                        dynamicTextColour.getBlue(),
-                        (int)alpha- (pause? 0:step));
-            }
-            private void cut(ActionEvent event){
-                after.run();
-                ((Timer)event.getSource()).stop();
-            }
-        }).start();
-    }
-    public int getWidth(){
-        return WIDTH;
-    }
-    public int getHeight(){
-        return HEIGHT;
-    }
-    public boolean equals(Object object){
-        if (!(object instanceof Tile))
-            return false;
-        return number == ((Tile)object).number;
-    }
-}
+package Graphics;
+
+import Logic.Entry;
+import Logic.Lane;
+import Logic.Metrics;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Class of objects each visually representing an Entry from the list of Entries
+ * in Manager.
+ */
+public class Tile extends JPanel {
+    /**
+     * Colour of round rect representing the Tile's shadow
+     */
+    static final Color SHADOW_COLOUR = new Color(0,0,0,50);
+    /**
+     * Colour of round rect representing the Tile
+     */
+    static final Color TILE_COLOUR = Color.WHITE;
+    /**
+     * Colours of round rect representing Tiles of priority lanes
+     */
+    static final Color VIP_COLOUR = new Color(255, 215, 0);
+    static final Color DELAYED_COLOUR = new Color(135, 206, 250);
+    /**
+     * Colour of the number printed on the Tile
+     */
+    static final Color TEXT_COLOUR = Color.BLACK;
+    /**
+     * The number printed on the Tile
+     */
+    private int number;
+    /**
+     * Lane of the entry, deciding the colour of the Tile
+     */
+    private Lane lane;
+    public static final int MARGIN = 5;
+    static final int SHADOW_MARGIN = 3;
+    public static final int CORNER_SIZE = 20;
+    /**
+     * Duration of the fade animation
+     */
+    static final long FADE_MILLIS = 200;
+    private static final int MAX_COLOUR_VALUE = 255;
+    /**
+     * Tile colour that is used non-destructively (changed while keeping original
+     * colour TILE_COLOUR)
+     */
+    private Color dynamicTileColour;
+    /**
+     * Tile colour that is used non-destructively (changed while keeping original
+     * colour TEXT_COLOUR)
+     */
+    private Color dynamicTextColour = TEXT_COLOUR;
+    /**
+     * If dynamic colours are in transition, in which case Tile is not
+     * rendered from cache
+     */
+    private boolean fading;
+
+    /**
+     * Construcs new Tile with transparent background
+     * @param entry
+     */
+    public Tile(Entry entry){
+        this(entry.getNumber(), entry.getLane());
+    }
+    /**
+     * Construcs new Tile with transparent background
+     * @param number to be printed on Tile
+     * @param lane of entry, deciding the colour of Tile
+     */
+    Tile(int number, Lane lane){
+        this.number = number;
+        this.lane = lane;
+        dynamicTileColour = restingColour(lane);
+        setSize(width(),height());
+        setBackground(new Color(0,0,0,0));
+    }
+    /**
+     * Renders Tile through TileRenderer, which blits a cached image of the
+     * Tile unless it is fading. The background of Tile is transparent, so it
+     * is not filled in first, which would have Swing copy graphics on every
+     * paint only to fill nothing.
+     * @param graphics needed to render graphics
+     */
+    protected void paintComponent(Graphics graphics){
+        long start = System.nanoTime();
+        TileRenderer.paint((Graphics2D)graphics, getGraphicsConfiguration(), number,
+                width(), height(), dynamicTileColour, dynamicTextColour, !fading);
+        Metrics.instance.tilePaint.recordSince(start);
+    }
+    /**
+     * Starts an animation whereby Tile simultaneously fades to green and fades
+     * away and then performing a sent function given as parameter "after"
+     * @param after a function to be called after anumation is finished
+     */
+    public void animateFade(Runnable after){
+        startFade();
+        Animator.start(FADE_MILLIS, this::stepFade, this, after);
+    }
+    /**
+     * Fades out all of tiles together in a single animation, repainting
+     * target once per frame rather than each Tile, then calls after
+     * @param tiles to be faded out
+     * @param target component containing tiles
+     * @param after a function to be called after animation is finished
+     */
+    static void animateFade(List<Tile> tiles, Component target, Runnable after){
+        for (Tile tile: tiles)
+            tile.startFade();
+        Animator.start(FADE_MILLIS, progress -> {
+            for (Tile tile: tiles)
+                tile.stepFade(progress);
+        }, target, after);
+    }
+    private void startFade(){
+        fading = true;
+        setOpaque(false);
+    }
+    /**
+     * Sets the colours of Tile at progress of fading out
+     * @param progress from 0 to 1
+     */
+    private void stepFade(double progress){
+        dynamicTileColour = fadingColour(lane, progress);
+        dynamicTextColour = fadingTextColour(progress);
+    }
+    /**
+     * @param lane of entry
+     * @param progress of fading out, from 0 to 1
+     * @return colour of Tiles of lane at progress of fading to green and
+     * away
+     */
+    static Color fadingColour(Lane lane, double progress){
+        Color resting = restingColour(lane);
+        int value = (int)(MAX_COLOUR_VALUE*(1 - progress));
+        return new Color(resting.getRed()*value/MAX_COLOUR_VALUE, resting.getGreen(),
+                resting.getBlue()*value/MAX_COLOUR_VALUE, value);
+    }
+    /**
+     * @param progress of fading out, from 0 to 1
+     * @return colour of the number printed on Tiles at progress of fading
+     * away
+     */
+    static Color fadingTextColour(double progress){
+        int value = (int)(MAX_COLOUR_VALUE*(1 - progress));
+        return new Color(TEXT_COLOUR.getRed(), TEXT_COLOUR.getGreen(), TEXT_COLOUR.getBlue(), value);
+    }
+    /**
+     * Shows number on Tile at rest instead of what it showed, so that Tile
+     * can be reused. Not repainted if it already shows number at rest.
+     * @param number to be printed on Tile
+     * @param lane of entry, deciding the colour of Tile
+     */
+    void setNumber(int number, Lane lane){
+        if (number == this.number && lane == this.lane && !fading)
+            return;
+        this.number = number;
+        this.lane = lane;
+        dynamicTileColour = restingColour(lane);
+        dynamicTextColour = TEXT_COLOUR;
+        fading = false;
+        repaint();
+    }
+    int getNumber(){
+        return number;
+    }
+    /**
+     * @param lane of entry
+     * @return colour of Tiles of lane at rest
+     */
+    static Color restingColour(Lane lane){
+        switch (lane){
+            case VIP:
+                return VIP_COLOUR;
+            case DELAYED:
+                return DELAYED_COLOUR;
+            default:
+                return TILE_COLOUR;
+        }
+    }
+    boolean isFading(){
+        return fading;
+    }
+    /**
+     * @return width of every Tile, fitting Canvas.SPACES_HORIZONTAL Tiles
+     * along the screen
+     */
+    public static int width(){
+        return Geometry.get().tileWidth;
+    }
+    /**
+     * @return height of every Tile, fitting Canvas.SPACES_VERTICAL Tiles
+     * along the screen
+     */
+    public static int height(){
+        return Geometry.get().tileHeight;
+    }
+    public int getWidth(){
+        return width();
+    }
+    public int getHeight(){
+        return height();
+    }
+    public boolean equals(Object object){
+        if (!(object instanceof Tile))
+            return false;
+        return number == ((Tile)object).number;
+    }
+}
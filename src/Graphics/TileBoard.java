@@ -0,0 +1,431 @@
+package Graphics;
+
+import Logic.Entry;
+import Logic.Lane;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Area;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Content pane of Canvas displaying entries as Tiles on a grid of
+ * Canvas.SPACES_HORIZONTAL times Canvas.SPACES_VERTICAL cells, filled row by
+ * row in order of Lane and, within each Lane, oldest first, as laid out by
+ * a CellLayout. Only cells on screen hold a Tile; entries not fitting on
+ * screen are kept as numbers only, and Tiles are reused as entries come and
+ * go, so a few hundred entries cost no more on screen than a few.
+ * Tiles are placed in their cells directly instead of by a layout manager,
+ * so adding or removing an entry only moves the Tiles it affects and only
+ * repaints the cells that changed.
+ * Optionally pages through entries not fitting on screen, showing each page
+ * of entries in turn.
+ * Fires property OCCUPIED_CELLS_PROPERTY when the number of cells showing a
+ * Tile changes.
+ */
+class TileBoard extends JPanel {
+    /**
+     * Number of cells on screen
+     */
+    static final int CELLS = Canvas.SPACES_HORIZONTAL * Canvas.SPACES_VERTICAL;
+    /**
+     * Name of the bound property of the number of cells showing a Tile
+     */
+    static final String OCCUPIED_CELLS_PROPERTY = "occupiedCells";
+    /**
+     * Entries in the order they are displayed, with the page shown and the
+     * cells reserved for Tiles flying in from InputPane
+     */
+    private final CellLayout layout = new CellLayout();
+    /**
+     * Tile of each cell on screen, null for empty cells
+     */
+    private final Tile[] cells = new Tile[CELLS];
+    /**
+     * Tiles no longer on screen, to be reused
+     */
+    private final ArrayDeque<Tile> pool = new ArrayDeque<>();
+    /**
+     * Timer turning pages, null if not paging
+     */
+    private Timer pager;
+
+    TileBoard(){
+        setLayout(null);
+        setOpaque(false);
+        setBackground(new Color(0,0,0,0));
+    }
+    /**
+     * Bounds of a cell on the grid, cells numbered row by row
+     * @param index of cell
+     * @return bounds of cell
+     */
+    static Rectangle cellBounds(int index){
+        int cellWidth = Tile.width() + 2*Tile.MARGIN;
+        int cellHeight = Tile.height() + 2*Tile.MARGIN;
+        return new Rectangle(
+                (index % Canvas.SPACES_HORIZONTAL)*cellWidth,
+                (index / Canvas.SPACES_HORIZONTAL)*cellHeight,
+                cellWidth, cellHeight);
+    }
+    /**
+     * @param lane of the next entry to be added
+     * @return index of the cell the next entry added in lane will be shown
+     * in, see CellLayout.nextFreeCell
+     */
+    int nextFreeCell(Lane lane){
+        return layout.nextFreeCell(lane);
+    }
+    /**
+     * Reserves the next free cell of lane for entry number, about to be
+     * added while its Tile flies in from InputPane, see
+     * CellLayout.reserveCell. The Tile of number is kept hidden until the
+     * flying Tile has landed, see land.
+     * @param number of entry to be added
+     * @param lane of entry
+     * @return index of the cell reserved, or of the cell of number if it is
+     * already shown
+     */
+    int reserveCell(int number, Lane lane){
+        return layout.reserveCell(number, lane);
+    }
+    /**
+     * Shows the Tile of entry number, kept hidden while a Tile flew in over
+     * its cell
+     * @param number of entry whose Tile has landed
+     */
+    void land(int number){
+        if (!layout.land(number))
+            return;
+        int cell = layout.cellOf(number);
+        if (cell >= 0 && cell < CELLS && cells[cell] != null && cells[cell].getNumber() == number){
+            cells[cell].setVisible(true);
+            repaint(cellBounds(cell));
+        }
+    }
+    /**
+     * @return number of entries, on screen or not
+     */
+    int entryCount(){
+        return layout.size();
+    }
+    /**
+     * Stops turning pages, as while idle with no entries to page through,
+     * or starts again if paging is on
+     * @param suspended if pages are not to be turned
+     */
+    void setPagingSuspended(boolean suspended){
+        if (pager == null)
+            return;
+        if (suspended)
+            pager.stop();
+        else if (!pager.isRunning())
+            pager.restart();
+    }
+    /**
+     * Turns paging through entries not fitting on screen on or off
+     * @param seconds each page is shown, 0 to turn paging off
+     */
+    void setPaging(int seconds){
+        if (pager != null)
+            pager.stop();
+        pager = null;
+        if (seconds > 0){
+            pager = new Timer(seconds*1000, event -> turnPage());
+            pager.start();
+        }else if (layout.firstPage()){
+            refreshFrom(0);
+        }
+    }
+    /**
+     * Adds entry number last in lane, showing it in its cell if it fits on
+     * screen. Entries of later lanes on screen are shifted one cell on, the
+     * last one on screen being pushed off screen if the screen is full.
+     * @param number of entry to be added
+     * @param lane of entry
+     */
+    void addNumber(int number, Lane lane){
+        int occupied = occupiedCells();
+        if (!layout.add(number, lane))
+            //Still fading out after being removed
+            return;
+        int cell = layout.cellOf(number);
+        if (cell < 0 || cell >= CELLS)
+            return;
+        release(CELLS - 1);
+        for (int i = CELLS - 1; i > cell; i--){
+            cells[i] = cells[i - 1];
+            if (cells[i] != null)
+                cells[i].setBounds(cellBounds(i));
+        }
+        cells[cell] = null;
+        bind(cell, number);
+        Rectangle dirty = cellBounds(cell);
+        for (int i = cell + 1; i < occupiedCells(); i++)
+            dirty.add(cellBounds(i));
+        repaint(dirty);
+        firePropertyChange(OCCUPIED_CELLS_PROPERTY, occupied, occupiedCells());
+    }
+    /**
+     * Fades out the Tile of entry number if on screen, then removes the
+     * entry. Entries not on screen are removed at once.
+     * @param number of entry to be removed
+     */
+    void fadeOutNumber(int number){
+        layout.clearAddedWhileFading(number);
+        int cell = layout.cellOf(number);
+        if (cell >= 0 && cell < CELLS && cells[cell] != null && cells[cell].getNumber() == number){
+            Tile tile = cells[cell];
+            if (!tile.isFading())
+                tile.animateFade(() -> {
+                    removeNumber(number);
+                    Lane readded = layout.takeAddedWhileFading(number);
+                    if (readded != null)
+                        addNumber(number, readded);
+                });
+        }
+        else{
+            removeNumber(number);
+        }
+    }
+    /**
+     * Removes entry number at once. If on screen, the Tiles after it are
+     * shifted one cell back, the first entry not fitting on screen is shown
+     * in the last cell, and only the cells from the removed one and onwards
+     * are repainted.
+     * @param number of entry to be removed
+     */
+    void removeNumber(int number){
+        int cell = layout.cellOf(number);
+        int occupied = occupiedCells();
+        if (!layout.remove(number) || cell < 0 || cell >= CELLS)
+            return;
+        if (layout.leaveEmptyPage()){
+            //Last entry of the last page removed, back to the first page
+            refreshFrom(0);
+            return;
+        }
+        release(cell);
+        for (int i = cell; i < CELLS - 1; i++){
+            cells[i] = cells[i + 1];
+            if (cells[i] != null)
+                cells[i].setBounds(cellBounds(i));
+        }
+        cells[CELLS - 1] = null;
+        if (layout.shownCells() == CELLS)
+            bind(CELLS - 1, layout.numberAt(CELLS - 1));
+        Rectangle dirty = cellBounds(cell);
+        for (int i = cell + 1; i < Math.max(occupied, occupiedCells()); i++)
+            dirty.add(cellBounds(i));
+        repaint(dirty);
+        firePropertyChange(OCCUPIED_CELLS_PROPERTY, occupied, occupiedCells());
+    }
+    /**
+     * Adds entries last in their lanes all at once, then moves the Tiles on
+     * screen to their cells in a single pass with a single repaint
+     * @param entries to be added, in order
+     */
+    void addNumbers(List<Entry> entries){
+        int occupied = occupiedCells();
+        int[] added = new int[entries.size()];
+        int count = 0;
+        for (Entry entry: entries){
+            //Skipped if still fading out after being removed
+            if (layout.add(entry.getNumber(), entry.getLane()))
+                added[count++] = entry.getNumber();
+        }
+        int first = CELLS;
+        for (int i = 0; i < count; i++){
+            int cell = layout.cellOf(added[i]);
+            if (cell >= 0)
+                first = Math.min(first, cell);
+        }
+        if (first < CELLS)
+            layoutFrom(first, occupied);
+    }
+    /**
+     * Fades out the Tiles of entries on screen together in one animation,
+     * then removes those entries at once. Entries not on screen are removed
+     * at once right away.
+     * @param entries to be removed
+     */
+    void fadeOutNumbers(List<Entry> entries){
+        ArrayList<Tile> tiles = new ArrayList<>();
+        int[] fading = new int[entries.size()];
+        int fadingCount = 0;
+        int[] gone = new int[entries.size()];
+        int goneCount = 0;
+        for (Entry entry: entries){
+            int number = entry.getNumber();
+            layout.clearAddedWhileFading(number);
+            int cell = layout.cellOf(number);
+            if (cell >= 0 && cell < CELLS && cells[cell] != null && cells[cell].getNumber() == number){
+                if (!cells[cell].isFading()){
+                    tiles.add(cells[cell]);
+                    fading[fadingCount++] = number;
+                }
+            }else{
+                gone[goneCount++] = number;
+            }
+        }
+        removeNumbers(gone, goneCount);
+        if (tiles.isEmpty())
+            return;
+        int faded = fadingCount;
+        Tile.animateFade(tiles, this, () -> {
+            removeNumbers(fading, faded);
+            ArrayList<Entry> readded = new ArrayList<>();
+            for (int i = 0; i < faded; i++){
+                Lane lane = layout.takeAddedWhileFading(fading[i]);
+                if (lane != null)
+                    readded.add(new Entry(fading[i], lane));
+            }
+            if (!readded.isEmpty())
+                addNumbers(readded);
+        });
+    }
+    /**
+     * Removes the first count entries of numbers at once, then moves the
+     * Tiles on screen to their cells in a single pass with a single repaint
+     * @param numbers of entries to be removed
+     * @param count of numbers to be removed
+     */
+    void removeNumbers(int[] numbers, int count){
+        int occupied = occupiedCells();
+        int first = CELLS;
+        for (int i = 0; i < count; i++){
+            int cell = layout.cellOf(numbers[i]);
+            if (layout.remove(numbers[i]) && cell >= 0)
+                first = Math.min(first, cell);
+        }
+        if (layout.leaveEmptyPage())
+            //Last entries of the last page removed, back to the first page
+            first = 0;
+        if (first < CELLS)
+            layoutFrom(first, occupied);
+    }
+    /**
+     * Moves every Tile on screen to its cell, after the size of cells has
+     * changed
+     */
+    void relayout(){
+        for (int i = 0; i < CELLS; i++){
+            if (cells[i] != null)
+                cells[i].setBounds(cellBounds(i));
+        }
+        repaint();
+    }
+    /**
+     * Shows the next page of entries, or the first page after the last
+     */
+    private void turnPage(){
+        if (layout.turnPage())
+            refreshFrom(0);
+    }
+    /**
+     * Shows the entries belonging in each cell from cell and onwards,
+     * keeping Tiles already showing the right entry
+     */
+    private void refreshFrom(int cell){
+        int occupied = 0;
+        while (occupied < CELLS && cells[occupied] != null)
+            occupied++;
+        for (int i = cell; i < CELLS; i++){
+            if (i < layout.shownCells()){
+                int number = layout.numberAt(i);
+                if (cells[i] == null || cells[i].getNumber() != number){
+                    release(i);
+                    bind(i, number);
+                }
+            }else{
+                release(i);
+            }
+        }
+        repaint();
+        firePropertyChange(OCCUPIED_CELLS_PROPERTY, occupied, occupiedCells());
+    }
+    /**
+     * Shows the entries belonging in each cell from cell and onwards, moving
+     * Tiles already showing one of them to its cell, fading ones included,
+     * and firing one change of the occupied cells and one repaint
+     * @param occupied number of cells occupied before the change
+     */
+    private void layoutFrom(int cell, int occupied){
+        HashMap<Integer, Tile> shown = new HashMap<>();
+        for (int i = cell; i < CELLS; i++){
+            if (cells[i] != null){
+                shown.put(cells[i].getNumber(), cells[i]);
+                cells[i] = null;
+            }
+        }
+        int end = layout.shownCells();
+        for (int i = cell; i < end; i++){
+            Tile tile = shown.remove(layout.numberAt(i));
+            if (tile != null){
+                tile.setBounds(cellBounds(i));
+                cells[i] = tile;
+            }
+        }
+        //Tiles no longer on screen are released before new ones are bound,
+        //so that they can be reused right away
+        for (Tile tile: shown.values()){
+            remove(tile);
+            if (!tile.isFading())
+                pool.add(tile);
+        }
+        for (int i = cell; i < end; i++){
+            if (cells[i] == null)
+                bind(i, layout.numberAt(i));
+        }
+        repaint();
+        firePropertyChange(OCCUPIED_CELLS_PROPERTY, occupied, occupiedCells());
+    }
+    /**
+     * Shows entry number in cell, reusing a Tile if there is one to reuse
+     */
+    private void bind(int cell, int number){
+        Lane lane = layout.laneOf(number);
+        Tile tile = pool.poll();
+        if (tile == null)
+            tile = new Tile(number, lane);
+        else
+            tile.setNumber(number, lane);
+        tile.setBounds(cellBounds(cell));
+        tile.setVisible(!layout.isFlying(number));
+        cells[cell] = tile;
+        add(tile);
+    }
+    /**
+     * Takes the Tile of cell off screen, keeping it for reuse unless it is
+     * still fading out
+     */
+    private void release(int cell){
+        Tile tile = cells[cell];
+        if (tile == null)
+            return;
+        cells[cell] = null;
+        remove(tile);
+        if (!tile.isFading())
+            pool.add(tile);
+    }
+    /**
+     * Area of the cells showing a Tile, filled row by row from the top left
+     * @return area of occupied cells, empty if none
+     */
+    Area occupiedArea(){
+        int occupied = occupiedCells();
+        Rectangle cell = cellBounds(0);
+        int fullRows = occupied / Canvas.SPACES_HORIZONTAL;
+        int rest = occupied % Canvas.SPACES_HORIZONTAL;
+        Area area = new Area(new Rectangle(0, 0,
+                fullRows > 0 ? Canvas.SPACES_HORIZONTAL*cell.width : 0, fullRows*cell.height));
+        area.add(new Area(new Rectangle(0, fullRows*cell.height, rest*cell.width, rest > 0 ? cell.height : 0)));
+        return area;
+    }
+    private int occupiedCells(){
+        return layout.shownCells();
+    }
+}
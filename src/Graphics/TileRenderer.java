@@ -0,0 +1,331 @@
+package Graphics;
+
+import Logic.Lane;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders Tiles from pre-rendered images. A Tile at rest is rendered once
+ * into an image cached by number, Tile size and colours, after which
+ * painting it is a single image blit. Numbers are composed from an atlas of
+ * pre-rendered digit glyphs, so no text is laid out while painting.
+ * Tiles in transition, such as fading, are painted from the glyph atlas
+ * without being cached, so that transitions do not push Tiles at rest out of
+ * the cache, or by paintTransition() from the glyph atlas over an image of
+ * the Tile without its number, cached by colour apart from Tiles at rest.
+ * The cache is bounded by MAX_CACHE_BYTES and is cleared when the Tile size
+ * or the screen configuration, such as resolution or scale, changes. Images
+ * painted recently are also kept in a small table looked up by primitive
+ * key, so that repainting a Tile allocates nothing.
+ * To be used from one thread only, the event dispatch thread or, when
+ * rendering actively, the render thread of ActiveCanvas.
+ */
+final class TileRenderer {
+    /**
+     * Upper bound of memory used by cached Tile images
+     */
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    /**
+     * Font the Tile number is printed in
+     */
+    private static final Font NUMBER_FONT = new Font("Arial", Font.BOLD, 200);
+    /**
+     * Space around each glyph in the atlas for parts of glyphs reaching
+     * outside their advance
+     */
+    private static final int GLYPH_PADDING = 8;
+    /**
+     * Cached Tile images at rest, least recently used first
+     */
+    private static final LinkedHashMap<Long, Image> cache =
+            new LinkedHashMap<Long, Image>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+                    if ((long)size() * imageBytes <= MAX_CACHE_BYTES)
+                        return false;
+                    forgetRecent(eldest.getKey());
+                    return true;
+                }
+            };
+    /**
+     * Number of slots of the table of recently painted images, 2 to the
+     * power of RECENT_BITS
+     */
+    private static final int RECENT_BITS = 6;
+    private static final int RECENT_SLOTS = 1 << RECENT_BITS;
+    /**
+     * Keys and images of recently painted Tiles, each in the slot given by
+     * its key, a slot holding the image last looked up for it
+     */
+    private static final long[] recentKeys = new long[RECENT_SLOTS];
+    private static final Image[] recentImages = new Image[RECENT_SLOTS];
+    /**
+     * Number of steps transitions painted by paintTransition() are rounded
+     * to, making TRANSITION_STEPS + 1 colours of each Lane from start to end
+     */
+    static final int TRANSITION_STEPS = 16;
+    /**
+     * Upper bound of the number of images of Tiles in transition cached,
+     * enough for every step of a transition of every Lane
+     */
+    private static final int MAX_TRANSITION_IMAGES = (TRANSITION_STEPS + 1) * Lane.values().length;
+    /**
+     * Cached images of Tiles in transition without their number, by colour,
+     * least recently used first
+     */
+    private static final LinkedHashMap<Integer, Image> transitions =
+            new LinkedHashMap<Integer, Image>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                    return size() > MAX_TRANSITION_IMAGES;
+                }
+            };
+    /**
+     * Composites for painting glyphs at every alpha, created on demand
+     */
+    private static final AlphaComposite[] composites = new AlphaComposite[256];
+    /**
+     * Screen configuration, Tile size and scale the cache was rendered for
+     */
+    private static GraphicsConfiguration configuration;
+    private static int tileWidth;
+    private static int tileHeight;
+    private static double scaleX = 1;
+    private static double scaleY = 1;
+    private static long imageBytes = 1;
+    /**
+     * Pre-rendered digits 0-9 in TEXT_COLOUR, each GLYPH_PADDING wider on
+     * both sides than its advance and fontHeight tall
+     */
+    private static Image[] glyphs;
+    private static int[] advances;
+    private static int ascent;
+    private static int descent;
+    private static int fontHeight;
+
+    private TileRenderer(){}
+
+    /**
+     * Paints a Tile, blitting its cached image if it is at rest
+     * @param graphics to paint on
+     * @param configuration of screen being painted on, null if unknown
+     * @param number printed on Tile
+     * @param width of Tile
+     * @param height of Tile
+     * @param tileColour colour of Tile rect
+     * @param textColour colour of Tile number
+     * @param resting if Tile is at rest, false if colours are in transition
+     */
+    static void paint(Graphics2D graphics, GraphicsConfiguration configuration, int number,
+                      int width, int height, Color tileColour, Color textColour, boolean resting){
+        validate(configuration, width, height);
+        if (!resting){
+            paintTile(graphics, number, width, height, tileColour, textColour);
+            return;
+        }
+        long key = ((long)number << 40) | ((tileColour.getRGB() & 0xFFFFFFFFL) << 8) | textColour.getAlpha();
+        int slot = recentSlot(key);
+        Image image = recentKeys[slot] == key ? recentImages[slot] : null;
+        if (image == null)
+            image = cache.get(key);
+        if (image == null){
+            image = createImage(width, height);
+            Graphics2D imageGraphics = (Graphics2D)image.getGraphics();
+            imageGraphics.scale(scaleX, scaleY);
+            paintTile(imageGraphics, number, width, height, tileColour, textColour);
+            imageGraphics.dispose();
+            cache.put(key, image);
+        }
+        recentKeys[slot] = key;
+        recentImages[slot] = image;
+        graphics.drawImage(image, 0, 0, width, height, null);
+    }
+    /**
+     * Paints a Tile in transition by blitting the cached image of a Tile in
+     * tileColour without its number and painting the number over it, so
+     * that it takes about as long as painting a Tile at rest. Meant for
+     * colours taken from TRANSITION_STEPS steps of each transition, as each
+     * colour painted is cached.
+     * @param graphics to paint on
+     * @param configuration of screen being painted on, null if unknown
+     * @param number printed on Tile
+     * @param width of Tile
+     * @param height of Tile
+     * @param tileColour colour of Tile rect
+     * @param textColour colour of Tile number
+     */
+    static void paintTransition(Graphics2D graphics, GraphicsConfiguration configuration, int number,
+                                int width, int height, Color tileColour, Color textColour){
+        validate(configuration, width, height);
+        Image image = transitions.get(tileColour.getRGB());
+        if (image == null){
+            image = createImage(width, height);
+            Graphics2D imageGraphics = (Graphics2D)image.getGraphics();
+            imageGraphics.scale(scaleX, scaleY);
+            paintRect(imageGraphics, width, height, tileColour);
+            imageGraphics.dispose();
+            transitions.put(tileColour.getRGB(), image);
+        }
+        graphics.drawImage(image, 0, 0, width, height, null);
+        paintNumber(graphics, number, width, height, textColour.getAlpha());
+    }
+    /**
+     * Empties the cache and glyph atlas, to be called when the screen
+     * configuration changes
+     */
+    static void invalidate(){
+        cache.clear();
+        Arrays.fill(recentImages, null);
+        transitions.clear();
+        glyphs = null;
+        configuration = null;
+    }
+    /**
+     * @return slot of key in the table of recently painted images, taken
+     * from the top bits of key multiplied by a large odd constant so that
+     * number and colours both decide it
+     */
+    private static int recentSlot(long key){
+        return (int)((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - RECENT_BITS));
+    }
+    /**
+     * Takes key out of the table of recently painted images, as when its
+     * image is evicted from the cache
+     */
+    private static void forgetRecent(long key){
+        int slot = recentSlot(key);
+        if (recentKeys[slot] == key)
+            recentImages[slot] = null;
+    }
+    /**
+     * Renders a Tile by in order:
+     * 1. Turning on anti aliasing
+     * 2. Rendering shadow rect
+     * 3. Rendering Tile rect
+     * 4. Rendering Tile number from the glyph atlas
+     */
+    private static void paintTile(Graphics2D graphics, int number, int width, int height,
+                                  Color tileColour, Color textColour){
+        paintRect(graphics, width, height, tileColour);
+
+        //Rendering tile number
+        paintNumber(graphics, number, width, height, textColour.getAlpha());
+    }
+    /**
+     * Renders the shadow and rect of a Tile, anti aliased
+     */
+    private static void paintRect(Graphics2D graphics, int width, int height, Color tileColour){
+        Object antialiasing = graphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        //Render shadow
+        graphics.setColor(Tile.SHADOW_COLOUR);
+        graphics.fillRoundRect(Tile.MARGIN-Tile.SHADOW_MARGIN, Tile.MARGIN-Tile.SHADOW_MARGIN,
+                width- Tile.CORNER_SIZE /2+(2*Tile.SHADOW_MARGIN),
+                height- Tile.CORNER_SIZE /2+(2*Tile.SHADOW_MARGIN),
+                Tile.CORNER_SIZE +(2*Tile.SHADOW_MARGIN),
+                Tile.CORNER_SIZE +(2*Tile.SHADOW_MARGIN));
+        //Render tile
+        graphics.setColor(tileColour);
+        graphics.fillRoundRect(Tile.MARGIN, Tile.MARGIN, width-Tile.CORNER_SIZE/2,
+                height-Tile.CORNER_SIZE/2, Tile.CORNER_SIZE, Tile.CORNER_SIZE);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+    }
+    /**
+     * Paints number centered on a Tile by blitting one glyph per digit,
+     * shrinking the glyphs if the number is too wide for the Tile
+     */
+    private static void paintNumber(Graphics2D graphics, int number, int width, int height, int alpha){
+        if (alpha == 0)
+            return;
+        int numberWidth = 0;
+        int divisor = 1;
+        for (int rest = number; ; rest /= 10){
+            numberWidth += advances[rest % 10];
+            if (rest < 10)
+                break;
+            divisor *= 10;
+        }
+        double scale = Math.min(1, (width - 2*Tile.CORNER_SIZE)/(double)numberWidth);
+        Composite composite = graphics.getComposite();
+        if (alpha < 255)
+            graphics.setComposite(composite(alpha));
+        double x = (width - numberWidth*scale)/2;
+        int y = (int)((height - fontHeight*scale)/2);
+        for (; divisor > 0; divisor /= 10){
+            int digit = number / divisor % 10;
+            graphics.drawImage(glyphs[digit], (int)(x - GLYPH_PADDING*scale), y,
+                    (int)((advances[digit] + 2*GLYPH_PADDING)*scale), (int)((ascent + descent)*scale), null);
+            x += advances[digit]*scale;
+        }
+        graphics.setComposite(composite);
+    }
+    private static AlphaComposite composite(int alpha){
+        if (composites[alpha] == null)
+            composites[alpha] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha/255f);
+        return composites[alpha];
+    }
+    /**
+     * Clears the cache and renders a new glyph atlas if the screen
+     * configuration or Tile size differs from what the cache was rendered for
+     */
+    private static void validate(GraphicsConfiguration newConfiguration, int width, int height){
+        if (glyphs != null && newConfiguration == configuration
+                && width == tileWidth && height == tileHeight)
+            return;
+        cache.clear();
+        Arrays.fill(recentImages, null);
+        transitions.clear();
+        configuration = newConfiguration;
+        tileWidth = width;
+        tileHeight = height;
+        AffineTransform transform = configuration == null ?
+                new AffineTransform() : configuration.getDefaultTransform();
+        scaleX = transform.getScaleX();
+        scaleY = transform.getScaleY();
+        imageBytes = Math.max(1, 4L * (long)Math.ceil(width*scaleX) * (long)Math.ceil(height*scaleY));
+        renderGlyphs();
+    }
+    /**
+     * Renders one image per digit in NUMBER_FONT and TEXT_COLOUR
+     */
+    private static void renderGlyphs(){
+        Graphics2D measuring = (Graphics2D)createImage(1, 1).getGraphics();
+        FontMetrics fontMetric = measuring.getFontMetrics(NUMBER_FONT);
+        measuring.dispose();
+        ascent = fontMetric.getAscent();
+        descent = fontMetric.getDescent();
+        fontHeight = fontMetric.getHeight();
+        glyphs = new Image[10];
+        advances = new int[10];
+        for (int digit = 0; digit < 10; digit++){
+            advances[digit] = fontMetric.charWidth((char)('0' + digit));
+            Image glyph = createImage(advances[digit] + 2*GLYPH_PADDING, ascent + descent);
+            Graphics2D graphics = (Graphics2D)glyph.getGraphics();
+            graphics.scale(scaleX, scaleY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setFont(NUMBER_FONT);
+            graphics.setColor(Tile.TEXT_COLOUR);
+            graphics.drawString(String.valueOf(digit), GLYPH_PADDING, ascent);
+            graphics.dispose();
+            glyphs[digit] = glyph;
+        }
+    }
+    /**
+     * Creates a translucent image of width and height at screen scale,
+     * compatible with the screen if there is one
+     */
+    private static Image createImage(int width, int height){
+        int pixelWidth = Math.max(1, (int)Math.ceil(width*scaleX));
+        int pixelHeight = Math.max(1, (int)Math.ceil(height*scaleY));
+        if (configuration == null)
+            return new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        return configuration.createCompatibleImage(pixelWidth, pixelHeight, Transparency.TRANSLUCENT);
+    }
+}
@@ -0,0 +1,285 @@
+package Graphics;
+
+import Input.Keypad;
+import Logic.Command;
+import Logic.Lane;
+import Logic.Manager;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+
+/**
+ * Everything ActiveCanvas shows, laid out on the same grid and in the same
+ * order as TileBoard by a CellLayout of its own, with the number being
+ * typed and Tiles flying to their cells as on InputPane. Nothing is a
+ * component: the whole scene is drawn in a single pass from its state at a
+ * given time, every Tile, whether at rest, fading out or flying, being
+ * blitted from images cached by TileRenderer so that a frame takes about as
+ * long whatever is animating. Animations are interpolated by the time of
+ * the frame drawn, so they take equally long however often frames are
+ * drawn.
+ * To be used from one thread only, the render thread of ActiveCanvas.
+ */
+final class TileScene {
+    /**
+     * Entries in the order they are displayed, with the page shown and the
+     * cells reserved for Tiles flying in
+     */
+    private final CellLayout layout = new CellLayout();
+    /**
+     * System.nanoTime() each entry number started fading out at, 0 unless
+     * fading out
+     */
+    private final long[] fadeStartNanos = new long[Manager.ENTRY_SPACE];
+    /**
+     * Entry numbers fading out, the first fadingCount of them
+     */
+    private final int[] fading = new int[Manager.ENTRY_SPACE];
+    private int fadingCount;
+    /**
+     * Tiles flying to their cells, in the order they were entered
+     */
+    private final ArrayList<Flight> flights = new ArrayList<>();
+    /**
+     * Keeping track of numbers being typed and the Lane they are added in
+     */
+    private final Keypad keypad = new Keypad();
+    /**
+     * Time each page is shown, 0 if not paging
+     */
+    private final long pageNanos;
+    /**
+     * System.nanoTime() the next page is to be shown at
+     */
+    private long nextPageNanos;
+    /**
+     * If anything changed since the scene was last drawn
+     */
+    private boolean changed = true;
+
+    /**
+     * Constructs an empty TileScene
+     * @param pagingSeconds each page of entries not fitting on screen is
+     *                      shown, 0 to always show the first page
+     */
+    TileScene(int pagingSeconds){
+        pageNanos = pagingSeconds * 1_000_000_000L;
+        nextPageNanos = System.nanoTime() + pageNanos;
+    }
+    /**
+     * Adds entry number last in lane. If still fading out, it is added
+     * again once faded out.
+     * @param number of entry to be added
+     * @param lane of entry
+     */
+    void add(int number, Lane lane){
+        if (layout.add(number, lane))
+            changed = true;
+    }
+    /**
+     * Fades out entry number if on screen, then removes it. Entries not on
+     * screen are removed at once.
+     * @param number of entry to be removed
+     * @param nowNanos System.nanoTime() now
+     */
+    void fadeOut(int number, long nowNanos){
+        layout.clearAddedWhileFading(number);
+        int cell = layout.cellOf(number);
+        if (cell >= 0 && cell < TileBoard.CELLS){
+            if (fadeStartNanos[number] == 0){
+                fadeStartNanos[number] = nowNanos;
+                fading[fadingCount++] = number;
+            }
+        }else{
+            remove(number);
+        }
+        changed = true;
+    }
+    /**
+     * Removes entry number at once
+     * @param number of entry to be removed
+     */
+    private void remove(int number){
+        if (!layout.remove(number))
+            return;
+        //Back to the first page if the last entry of the last page was removed
+        layout.leaveEmptyPage();
+        changed = true;
+    }
+    /**
+     * Handles a key pressed on the keyboard as InputPane does: digits are
+     * typed, Enter adds the number typed, or the next number of Manager
+     * when adding automatically, and flies it to its cell, Delete removes
+     * it, Backspace removes the last digit and * switches Lane. Commands are
+     * submitted as keys are pressed, so that they keep the order of the keys.
+     * @param keyCode of key pressed
+     * @param keyChar of key pressed
+     * @param nowNanos System.nanoTime() now
+     */
+    void press(int keyCode, char keyChar, long nowNanos){
+        if (keyCode == KeyEvent.VK_ENTER){
+            if (keypad.isEmpty() && Manager.instance.autoAddOn())
+                //Next number of Manager, as Canvas does
+                keypad.setNumber(Manager.instance.autoNext());
+            if (!keypad.isEmpty())
+                launch(nowNanos);
+        }else if (keyCode == KeyEvent.VK_DELETE || keyCode == KeyEvent.VK_CLEAR){
+            if (!keypad.isEmpty())
+                Manager.instance.submit(keypad.delete());
+        }else if (keyCode == KeyEvent.VK_BACK_SPACE){
+            if (!keypad.backspace())
+                keypad.clear();
+        }else if (keyCode == KeyEvent.VK_MULTIPLY || keyChar == '*'){
+            if (!keypad.isEmpty())
+                keypad.nextLane();
+        }else{
+            int digit = Character.digit(keyChar, 10);
+            if (digit >= 0)
+                keypad.type(digit);
+            else
+                System.out.println("Exception catched: Not a number");
+        }
+        changed = true;
+    }
+    /**
+     * Submits adding the entry of the number typed and flies it from the
+     * middle of the screen to the cell reserved for it
+     */
+    private void launch(long nowNanos){
+        Lane lane = keypad.getLane();
+        Command command = keypad.enter();
+        int number = command.getNumber();
+        int cell = layout.reserveCell(number, lane);
+        Manager.instance.submit(command);
+        flights.add(new Flight(number, lane, nowNanos, TileBoard.cellBounds(cell)));
+    }
+    /**
+     * Ends animations finished by now, removing entries faded out and
+     * showing the entries of Tiles landed, and turns the page if due
+     * @param nowNanos System.nanoTime() now
+     */
+    void step(long nowNanos){
+        long fadeNanos = Tile.FADE_MILLIS * 1_000_000;
+        for (int i = 0; i < fadingCount; i++){
+            int number = fading[i];
+            if (nowNanos - fadeStartNanos[number] < fadeNanos)
+                continue;
+            fading[i--] = fading[--fadingCount];
+            fadeStartNanos[number] = 0;
+            remove(number);
+            Lane readded = layout.takeAddedWhileFading(number);
+            if (readded != null)
+                add(number, readded);
+        }
+        long flyNanos = InputPane.FLY_MILLIS * 1_000_000;
+        while (!flights.isEmpty() && nowNanos - flights.get(0).startNanos >= flyNanos){
+            layout.land(flights.remove(0).number);
+            changed = true;
+        }
+        if (pageNanos > 0 && nowNanos - nextPageNanos >= 0){
+            nextPageNanos = nowNanos + pageNanos;
+            if (layout.turnPage())
+                changed = true;
+        }
+    }
+    /**
+     * Has the whole scene drawn again in the next frame, as when the screen
+     * changed
+     */
+    void invalidate(){
+        changed = true;
+    }
+    /**
+     * @return if any Tile is fading out or flying
+     */
+    boolean isAnimating(){
+        return fadingCount > 0 || !flights.isEmpty();
+    }
+    /**
+     * @return if a frame is to be drawn, the scene having changed since last
+     * drawn or animating
+     */
+    boolean needsFrame(){
+        return changed || isAnimating();
+    }
+    /**
+     * @return System.nanoTime() the next page is to be shown at, or
+     * Long.MAX_VALUE if there is only one page or paging is off
+     */
+    long nextPageNanos(){
+        return pageNanos > 0 && layout.size() > TileBoard.CELLS ? nextPageNanos : Long.MAX_VALUE;
+    }
+    /**
+     * Draws the whole scene as of nowNanos, clearing what was drawn before
+     * @param graphics to draw on, covering the screen
+     * @param configuration of the screen drawn on, null if offscreen
+     * @param nowNanos System.nanoTime() of the frame
+     */
+    void render(Graphics2D graphics, GraphicsConfiguration configuration, long nowNanos){
+        Geometry geometry = Geometry.get();
+        Composite composite = graphics.getComposite();
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, geometry.screenWidth, geometry.screenHeight);
+        graphics.setComposite(composite);
+        int width = Tile.width();
+        int height = Tile.height();
+        long fadeNanos = Tile.FADE_MILLIS * 1_000_000;
+        int end = layout.shownCells();
+        for (int cell = 0; cell < end; cell++){
+            int number = layout.numberAt(cell);
+            if (layout.isFlying(number))
+                continue;
+            Lane lane = layout.laneOf(number);
+            Rectangle bounds = TileBoard.cellBounds(cell);
+            graphics.translate(bounds.x, bounds.y);
+            if (fadeStartNanos[number] == 0){
+                TileRenderer.paint(graphics, configuration, number, width, height,
+                        Tile.restingColour(lane), Tile.TEXT_COLOUR, true);
+            }else{
+                double progress = Math.min(1, (nowNanos - fadeStartNanos[number]) / (double)fadeNanos);
+                //Rounded down to a step, so that every image painted is cached
+                progress = Math.floor(progress*TileRenderer.TRANSITION_STEPS) / TileRenderer.TRANSITION_STEPS;
+                TileRenderer.paintTransition(graphics, configuration, number, width, height,
+                        Tile.fadingColour(lane, progress), Tile.fadingTextColour(progress));
+            }
+            graphics.translate(-bounds.x, -bounds.y);
+        }
+        int startX = geometry.screenWidth/2 - width/2;
+        int startY = geometry.screenHeight/2 - height/2;
+        long flyNanos = InputPane.FLY_MILLIS * 1_000_000;
+        for (Flight flight: flights){
+            double progress = Math.min(1, (nowNanos - flight.startNanos) / (double)flyNanos);
+            int x = startX + (int)((flight.destination.x - startX)*Animator.easeOut(progress, 3));
+            int y = startY + (int)((flight.destination.y - startY)*Animator.easeOut(progress, 2));
+            graphics.translate(x, y);
+            TileRenderer.paint(graphics, configuration, flight.number, width, height,
+                    Tile.restingColour(flight.lane), Tile.TEXT_COLOUR, true);
+            graphics.translate(-x, -y);
+        }
+        if (!keypad.isEmpty()){
+            graphics.translate(startX, startY);
+            TileRenderer.paint(graphics, configuration, keypad.getNumber(), width, height,
+                    Tile.restingColour(keypad.getLane()), Tile.TEXT_COLOUR, true);
+            graphics.translate(-startX, -startY);
+        }
+        changed = false;
+    }
+
+    /**
+     * A Tile flying from the middle of the screen to its cell
+     */
+    private static class Flight {
+        private final int number;
+        private final Lane lane;
+        private final long startNanos;
+        private final Rectangle destination;
+
+        private Flight(int number, Lane lane, long startNanos, Rectangle destination){
+            this.number = number;
+            this.lane = lane;
+            this.startNanos = startNanos;
+            this.destination = destination;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package Input;
+
+import Logic.Command;
+import Logic.Manager;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input device read as a stream of keys, such as a second keypad or a
+ * barcode scanner reading as a keyboard, given by the path of its device
+ * file or of a named pipe, or standard input. Keys are typed on a Keypad of
+ * the device's own and completed commands submitted to Manager.
+ * Each device is read on a thread of its own, a virtual thread if the Java
+ * runtime has them. A device file or named pipe reaching its end, as when a
+ * device is unplugged or the writer of a pipe goes away, is opened again.
+ */
+public class DeviceInput implements Closeable {
+    /**
+     * Path standing for standard input
+     */
+    public static final String STANDARD_INPUT = "-";
+    /**
+     * Time to wait before opening a device again
+     */
+    private static final long REOPEN_MILLIS = 1000;
+
+    private final String path;
+    private final Manager manager;
+    private final Keypad keypad = new Keypad();
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile InputStream input;
+
+    /**
+     * Constructs DeviceInput, to be started by start()
+     * @param path of device file or named pipe, STANDARD_INPUT for standard
+     *             input
+     * @param manager to submit commands to
+     */
+    public DeviceInput(String path, Manager manager){
+        this.path = path;
+        this.manager = manager;
+        thread = newThread("QueManager input " + path, this::read);
+    }
+    public void start(){
+        thread.start();
+    }
+    @Override
+    public void close(){
+        closed = true;
+        thread.interrupt();
+        InputStream open = input;
+        if (open != null){
+            try {
+                open.close();
+            }catch(IOException e){
+                System.out.println("Exception catched: Input device not closed, " + e.getMessage());
+            }
+        }
+    }
+    /**
+     * Reads keys until closed, opening the device again whenever it ends
+     */
+    private void read(){
+        while (!closed){
+            try (InputStream opened = open()){
+                input = opened;
+                int key;
+                while ((key = opened.read()) != -1){
+                    Command command = keypad.press((char)key);
+                    if (command != null)
+                        manager.submit(command);
+                }
+            }catch(IOException e){
+                if (!closed)
+                    System.out.println("Exception catched: Input device " + path + " not read, " + e.getMessage());
+            }
+            keypad.clear();
+            if (path.equals(STANDARD_INPUT))
+                return;
+            try {
+                Thread.sleep(REOPEN_MILLIS);
+            }catch(InterruptedException e){
+                return;
+            }
+        }
+    }
+    private InputStream open() throws IOException {
+        return new BufferedInputStream(path.equals(STANDARD_INPUT) ? System.in : new FileInputStream(path));
+    }
+    /**
+     * Creates a virtual thread if the Java runtime has them, found by
+     * reflection so that QueManager still runs on Java 17, and otherwise a
+     * daemon platform thread
+     */
+    private static Thread newThread(String name, Runnable task){
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class).invoke(builder, name);
+            return (Thread)builderType.getMethod("unstarted", Runnable.class).invoke(builder, task);
+        }catch(ReflectiveOperationException e){
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
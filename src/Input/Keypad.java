@@ -0,0 +1,140 @@
+package Input;
+
+import Logic.Command;
+import Logic.Lane;
+import Logic.Manager;
+
+/**
+ * Digits typed so far on one input device and the Lane chosen for them,
+ * turned into a Command once entered or deleted. Each device has a Keypad
+ * of its own, so that digits typed on two devices at once never mix.
+ * Not safe for concurrent use, each Keypad being typed on by one thread.
+ */
+public class Keypad {
+    /**
+     * Lanes in order, Lane.values() copying them on every call
+     */
+    private static final Lane[] LANES = Lane.values();
+    /**
+     * Number typed so far, 0 if nothing is typed
+     */
+    private int number;
+    /**
+     * Number of digits typed so far, at most Manager.MAX_ENTRY_DIGITS
+     */
+    private int digits;
+    private Lane lane = Lane.REGULAR;
+
+    /**
+     * Types key as sent by a keypad or barcode scanner reading as a
+     * keyboard: digits, Enter, + or a line break to add, - or Delete to
+     * remove, * to switch Lane, Backspace to remove the last digit and
+     * Escape to start over. Other keys are ignored.
+     * @param key typed
+     * @return Command completed by key, null if none
+     */
+    public Command press(char key){
+        int digit = Character.digit(key, 10);
+        if (digit >= 0){
+            type(digit);
+            return null;
+        }
+        switch (key){
+            case '\n':
+            case '\r':
+            case '+':
+                return isEmpty() ? null : enter();
+            case '-':
+            case 0x7f:
+                return isEmpty() ? null : delete();
+            case '*':
+                nextLane();
+                return null;
+            case '\b':
+                if (!backspace())
+                    clear();
+                return null;
+            case 0x1b:
+                clear();
+                return null;
+            default:
+                return null;
+        }
+    }
+    /**
+     * Types digit after those typed so far, replacing a lone 0 and ignored
+     * if Manager.MAX_ENTRY_DIGITS digits are already typed
+     * @param digit from 0 to 9
+     */
+    public void type(int digit){
+        if (digits == 0 || number == 0){
+            number = digit;
+            digits = 1;
+        }else if (digits < Manager.MAX_ENTRY_DIGITS){
+            number = number*10 + digit;
+            digits++;
+        }
+    }
+    /**
+     * Sets the number typed so far, as if typed digit by digit
+     * @param number to be typed, a valid entry number
+     */
+    public void setNumber(int number){
+        this.number = number;
+        digits = 1;
+        for (int rest = number/10; rest > 0; rest /= 10)
+            digits++;
+    }
+    /**
+     * Removes the last digit typed, unless it is the only one
+     * @return false if only one digit, or none, was typed
+     */
+    public boolean backspace(){
+        if (digits <= 1)
+            return false;
+        number /= 10;
+        digits--;
+        return true;
+    }
+    /**
+     * Switches to the next Lane
+     */
+    public void nextLane(){
+        lane = LANES[(lane.ordinal() + 1) % LANES.length];
+    }
+    /**
+     * @return Command adding the number typed in the Lane chosen, after
+     * which the Keypad starts over
+     */
+    public Command enter(){
+        Command command = Command.add(number, lane);
+        clear();
+        return command;
+    }
+    /**
+     * @return Command removing the number typed, after which the Keypad
+     * starts over
+     */
+    public Command delete(){
+        Command command = Command.remove(number);
+        clear();
+        return command;
+    }
+    /**
+     * Forgets everything typed and goes back to Lane REGULAR
+     */
+    public void clear(){
+        number = 0;
+        digits = 0;
+        lane = Lane.REGULAR;
+    }
+    public int getNumber(){
+        return number;
+    }
+    public Lane getLane(){
+        return lane;
+    }
+    public boolean isEmpty(){
+        return digits == 0;
+    }
+}
@@ -0,0 +1,261 @@
+package Logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.ToIntFunction;
+
+/**
+ * BroadcastingListReceiver queueing changes and delivering them in order to
+ * a wrapped receiver on an executor of its own, so that a slow receiver does
+ * not stall whoever is changing the BroadcastingList.
+ * Changes queued while the wrapped receiver is still busy are delivered
+ * together as one tick. An addition followed by a removal of the same key
+ * within one tick cancels out and neither is delivered. A batch of changes
+ * is queued and delivered as one, counting as one change towards capacity,
+ * and is never cancelled out.
+ * @param <T> generic type that must match generic type of BroadcastinList to be
+ *           received from
+ */
+public class AsyncReceiver<T> implements BroadcastingListReceiver<T> {
+    /**
+     * What to do with a change when capacity changes are already queued
+     */
+    public enum OverflowPolicy {
+        /**
+         * Make the changing thread wait for the queue to drain. If the
+         * changing thread is the delivering thread itself, as when the Swing
+         * event dispatch thread both adds entries and delivers to Canvas, the
+         * queue is let to grow past capacity since waiting would never end.
+         * Only the thread broadcasting changes of a BroadcastingList waits
+         * here; other changing threads wait in turn once the changes not yet
+         * broadcast fill BroadcastingList.OUTBOX_CAPACITY.
+         */
+        BLOCK,
+        /**
+         * Drop the change and count it in getDropped()
+         */
+        DROP_NEWEST,
+        /**
+         * Throw a RejectedExecutionException to the changing thread
+         */
+        REJECT
+    }
+
+    /**
+     * Receiver changes are delivered to
+     */
+    private final BroadcastingListReceiver<T> receiver;
+    /**
+     * Function supplying the key of an item, used for cancelling out changes
+     */
+    private final ToIntFunction<? super T> keyOf;
+    /**
+     * Executor on which changes are delivered to receiver
+     */
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    /**
+     * Changes not yet delivered, in order. Cancelled changes stay until
+     * drained but do not count towards capacity.
+     */
+    private final ArrayDeque<Change<T>> pending = new ArrayDeque<>();
+    /**
+     * Queued additions by key, to be cancelled by a removal of the same key
+     */
+    private final HashMap<Integer, Change<T>> pendingAdds = new HashMap<>();
+    /**
+     * Number of changes in pending that are not cancelled
+     */
+    private int size;
+    /**
+     * If a drain of pending is scheduled on or running on executor
+     */
+    private boolean scheduled;
+    private long dropped;
+    /**
+     * Thread last delivering changes to receiver
+     */
+    private volatile Thread deliveryThread;
+
+    /**
+     * Constructs AsyncReceiver delivering to receiver on executor
+     * @param receiver to deliver changes to
+     * @param keyOf function supplying the key of an item
+     * @param executor to deliver changes on, for Swing receivers
+     *                 EventQueue::invokeLater
+     * @param capacity maximum number of changes queued before policy applies
+     * @param policy what to do with changes not fitting in the queue
+     */
+    public AsyncReceiver(BroadcastingListReceiver<T> receiver, ToIntFunction<? super T> keyOf,
+                         Executor executor, int capacity, OverflowPolicy policy){
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.receiver = receiver;
+        this.keyOf = keyOf;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+    /**
+     * Queues addition of item for delivery
+     * @param item added to BroadcastingList
+     */
+    @Override
+    public void doOnAdd(T item) {
+        enqueue(true, item, null);
+    }
+    /**
+     * Queues removal of item for delivery, or cancels a queued addition of
+     * the same item
+     * @param item removed from BroadcastingList
+     */
+    @Override
+    public void doOnRemove(T item) {
+        enqueue(false, item, null);
+    }
+    /**
+     * Queues addition of items for delivery as one batch
+     * @param items added to BroadcastingList
+     */
+    @Override
+    public void doOnAddAll(List<T> items) {
+        enqueue(true, null, items);
+    }
+    /**
+     * Queues removal of items for delivery as one batch
+     * @param items removed from BroadcastingList
+     */
+    @Override
+    public void doOnRemoveAll(List<T> items) {
+        enqueue(false, null, items);
+    }
+    /**
+     * @return receiver changes are delivered to
+     */
+    public BroadcastingListReceiver<T> getReceiver(){
+        return receiver;
+    }
+    /**
+     * @return number of changes dropped by policy DROP_NEWEST
+     */
+    public synchronized long getDropped(){
+        return dropped;
+    }
+    /**
+     * @return number of changes queued and not yet delivered
+     */
+    public synchronized int getQueued(){
+        return size;
+    }
+    /**
+     * @param thread to look for
+     * @return if thread is the one last delivering changes to receiver
+     */
+    boolean isDeliveryThread(Thread thread){
+        return thread == deliveryThread;
+    }
+    /**
+     * Queues a change of item, or of batch if not null
+     */
+    private void enqueue(boolean added, T item, List<T> batch){
+        int key = batch == null ? keyOf.applyAsInt(item) : -1;
+        synchronized (this){
+            if (!added && batch == null){
+                Change<T> addition = pendingAdds.remove(key);
+                if (addition != null){
+                    addition.cancelled = true;
+                    size--;
+                    notifyAll();
+                    return;
+                }
+            }
+            while (size >= capacity){
+                if (policy == OverflowPolicy.DROP_NEWEST){
+                    dropped++;
+                    return;
+                }
+                if (policy == OverflowPolicy.REJECT)
+                    throw new RejectedExecutionException("Receiver queue full: " + receiver);
+                if (Thread.currentThread() == deliveryThread)
+                    break;
+                try {
+                    wait();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            Change<T> change = new Change<>(added, item, batch);
+            pending.add(change);
+            if (added && batch == null)
+                pendingAdds.put(key, change);
+            size++;
+            if (scheduled)
+                return;
+            scheduled = true;
+        }
+        executor.execute(this::drain);
+    }
+    /**
+     * Delivers all queued changes to receiver, one tick at a time, until no
+     * changes are left
+     */
+    private void drain(){
+        deliveryThread = Thread.currentThread();
+        ArrayList<Change<T>> tick = new ArrayList<>();
+        while (true){
+            synchronized (this){
+                if (pending.isEmpty()){
+                    scheduled = false;
+                    return;
+                }
+                tick.addAll(pending);
+                pending.clear();
+                pendingAdds.clear();
+                size = 0;
+                notifyAll();
+            }
+            for (Change<T> change: tick){
+                if (change.cancelled)
+                    continue;
+                long start = System.nanoTime();
+                Metrics.instance.dispatchDelay.record(start - change.queuedNanos);
+                if (change.batch != null && change.added)
+                    receiver.doOnAddAll(change.batch);
+                else if (change.batch != null)
+                    receiver.doOnRemoveAll(change.batch);
+                else if (change.added)
+                    receiver.doOnAdd(change.item);
+                else
+                    receiver.doOnRemove(change.item);
+                Metrics.instance.dispatch.recordSince(start);
+            }
+            tick.clear();
+        }
+    }
+
+    /**
+     * A single queued change
+     */
+    private static class Change<T> {
+        private final boolean added;
+        private final T item;
+        /**
+         * Items of a batch of changes, null for a single change of item
+         */
+        private final List<T> batch;
+        private final long queuedNanos = System.nanoTime();
+        private boolean cancelled;
+
+        private Change(boolean added, T item, List<T> batch){
+            this.added = added;
+            this.item = item;
+            this.batch = batch;
+        }
+    }
+}
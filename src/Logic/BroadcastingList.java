@@ -1,55 +1,476 @@
-package Logic;
-
-import java.util.ArrayList;
-
-/**
- * Extension of ArrayList that broadcasts additions to and removals from
- * BroadcastingList to a list of receivers
- * @param <T> generic type to be contained in BroadcastingList
- */
-public class BroadcastingList<T> extends ArrayList<T> {
-    /**
-     * List of BroadcastingListReceivers to be receiving broadcasts of changes
-     * done to BroadcastingList
-     */
-    ArrayList<BroadcastingListReceiver> receivers = new ArrayList<>();
-
-    /**
-     * Adding to BroadcastingList and broadcasting change to all receivers
-     * @param item to be added
-     * @return if successfully added
-     */
-    public boolean add(T item){
-        boolean success = super.add(item);
-        for (BroadcastingListReceiver receiver: receivers)
-            receiver.doOnAdd(item);
-        return success;
-    }
-    /**
-     * Removing from BroadcastingList and broadcasting change to all receivers
-     * @param item to be removed
-     * @return if successfully removed
-     */
-    public boolean remove(Object item){
-        boolean success = super.remove(item);
-        for (BroadcastingListReceiver receiver: receivers)
-            receiver.doOnRemove(item);
-        return success;
-    }
-    /**
-     * Adds receiver to be notified upon change done to BroadcastingList
-     * @param receiver to be added
-     * @return if receiver added successfully
-     */
-    public boolean addReceiver(BroadcastingListReceiver receiver){
-        return receivers.add(receiver);
-    }
-    /**
-     * Removes receiver from list to be notified upon change done to BroadcastingList
-     * @param receiver to be removed
-     * @return if receiver removed successfully
-     */
-    public boolean removeReceiver(BroadcastingListReceiver receiver){
-        return receivers.remove(receiver);
-    }
-}
+package Logic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Insertion ordered list of items with unique int keys that broadcasts
+ * additions to and removals from BroadcastingList to a list of receivers.
+ * Items are indexed by key in an EntryIndex, so adding, removing and
+ * looking up an item never scans the list.
+ * BroadcastingList is safe for concurrent use. Additions and removals are
+ * applied one at a time under a short lock and take effect atomically in
+ * that order. Changes are broadcast in the same order by one thread at a
+ * time, after the lock is released. Changes applied but not yet broadcast
+ * are bounded by OUTBOX_CAPACITY: once that many are waiting, every thread
+ * changing BroadcastingList waits for them to be broadcast before applying
+ * its change, so that a receiver holding up broadcasting, such as an
+ * AsyncReceiver with policy BLOCK, holds back all producers rather than
+ * letting changes pile up. Looking up an item by key never locks, nor does
+ * taking a Snapshot of a version already taken.
+ * Batches of additions or removals are applied under a single hold of the
+ * lock and broadcast as one change through the batch callbacks of
+ * BroadcastingListReceiver.
+ * Each change makes a new version. The immutable Snapshot of a version is
+ * built when it is first taken, copying the contained items once under the
+ * lock, so that a change costs no copy however many items are contained
+ * and a burst of changes between two Snapshots costs a single copy. The
+ * last LOG_CAPACITY changes are kept so that a Snapshot can tell what
+ * changed since a recent version.
+ * @param <T> generic type to be contained in BroadcastingList
+ */
+public class BroadcastingList<T> {
+    /**
+     * Number of most recent changes kept for Snapshot.changesSince
+     */
+    private static final int LOG_CAPACITY = 1024;
+    /**
+     * Maximum number of changes applied but not yet broadcast before
+     * changing threads wait for them to be broadcast
+     */
+    static final int OUTBOX_CAPACITY = 1024;
+    /**
+     * List of BroadcastingListReceivers to be receiving broadcasts of changes
+     * done to BroadcastingList
+     */
+    CopyOnWriteArrayList<BroadcastingListReceiver<T>> receivers = new CopyOnWriteArrayList<>();
+    /**
+     * Keys of contained items in insertion order, guarded by lock
+     */
+    private final EntryIndex index;
+    /**
+     * Contained items by key, null if not contained. Written under lock.
+     */
+    private final AtomicReferenceArray<T> items;
+    /**
+     * Function supplying the key of an item
+     */
+    private final ToIntFunction<? super T> keyOf;
+    /**
+     * Lock under which all changes are applied
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Changes applied but not yet broadcast, in the order they were applied
+     */
+    private final ConcurrentLinkedQueue<Snapshot.Change<T>> outbox = new ConcurrentLinkedQueue<>();
+    /**
+     * Number of changes in outbox
+     */
+    private final AtomicInteger outboxSize = new AtomicInteger();
+    /**
+     * Number of threads waiting for room in outbox, notified on outboxRoom
+     */
+    private final AtomicInteger outboxWaiters = new AtomicInteger();
+    private final Object outboxRoom = new Object();
+    /**
+     * If some thread is currently broadcasting changes from outbox
+     */
+    private final AtomicBoolean broadcasting = new AtomicBoolean();
+    /**
+     * Thread currently broadcasting changes from outbox, null if none
+     */
+    private volatile Thread broadcaster;
+    /**
+     * Number of contained items, written under lock
+     */
+    private volatile int size;
+    /**
+     * Snapshot of the latest version, null until taken again after a change.
+     * Written under lock.
+     */
+    private volatile Snapshot<T> snapshot = new Snapshot<>();
+    /**
+     * Number of changes made, guarded by lock
+     */
+    private long version;
+    /**
+     * Last LOG_CAPACITY changes by version modulo LOG_CAPACITY, guarded by
+     * lock
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Snapshot.Change<T>[] log = new Snapshot.Change[LOG_CAPACITY];
+
+    /**
+     * Constructs empty BroadcastingList
+     * @param keyOf function supplying the unique key of an item
+     * @param keySpace number of distinct keys, keys ranging from 0 up to, but
+     *                 not including, keySpace
+     */
+    public BroadcastingList(ToIntFunction<? super T> keyOf, int keySpace){
+        this.keyOf = keyOf;
+        index = new EntryIndex(keySpace);
+        items = new AtomicReferenceArray<>(keySpace);
+    }
+    /**
+     * Adding to BroadcastingList and broadcasting change to all receivers
+     * @param item to be added
+     * @return if successfully added, false if an item with the same key is
+     * already contained
+     */
+    public boolean add(T item){
+        int key = keyOf.applyAsInt(item);
+        awaitOutboxRoom();
+        lock.lock();
+        try {
+            if (!index.add(key))
+                return false;
+            items.set(key, item);
+            size = index.size();
+            post(logChange(true, key, item, null));
+        }finally{
+            lock.unlock();
+        }
+        broadcast();
+        return true;
+    }
+    /**
+     * Removing from BroadcastingList and broadcasting change to all receivers
+     * @param item to be removed
+     * @return if successfully removed
+     */
+    public boolean remove(T item){
+        return removeKey(keyOf.applyAsInt(item)) != null;
+    }
+    /**
+     * Removing item with key from BroadcastingList and broadcasting change to
+     * all receivers
+     * @param key of item to be removed
+     * @return removed item, null if no item with key was contained
+     */
+    public T removeKey(int key){
+        T item;
+        awaitOutboxRoom();
+        lock.lock();
+        try {
+            if (!index.remove(key))
+                return null;
+            item = items.getAndSet(key, null);
+            size = index.size();
+            post(logChange(false, key, item, null));
+        }finally{
+            lock.unlock();
+        }
+        broadcast();
+        return item;
+    }
+    /**
+     * Adding all of items at once, in order, and broadcasting them to all
+     * receivers as one batch. Items whose key is already contained, or
+     * contained earlier in items, are skipped.
+     * @param items to be added
+     * @return items added, in order
+     * @throws IllegalArgumentException if the key of any item is outside the
+     * key space, in which case none is added
+     */
+    public List<T> addAll(Collection<? extends T> items){
+        for (T item: items){
+            int key = keyOf.applyAsInt(item);
+            if (key < 0 || key >= this.items.length())
+                throw new IllegalArgumentException("Key outside key space: " + key);
+        }
+        ArrayList<T> added = new ArrayList<>(items.size());
+        awaitOutboxRoom();
+        lock.lock();
+        try {
+            for (T item: items){
+                int key = keyOf.applyAsInt(item);
+                if (index.add(key)){
+                    this.items.set(key, item);
+                    added.add(item);
+                }
+            }
+            if (added.isEmpty())
+                return added;
+            size = index.size();
+            List<T> batch = Collections.unmodifiableList(added);
+            Snapshot.Change<T> change = null;
+            for (int i = 0; i < added.size(); i++){
+                T item = added.get(i);
+                change = logChange(true, keyOf.applyAsInt(item), item, i == added.size() - 1 ? batch : null);
+            }
+            post(change);
+        }finally{
+            lock.unlock();
+        }
+        broadcast();
+        return Collections.unmodifiableList(added);
+    }
+    /**
+     * Removing all items with any of keys at once and broadcasting them to
+     * all receivers as one batch
+     * @param keys of items to be removed, keys not contained being skipped
+     * @return items removed, in the order of keys
+     */
+    public List<T> removeAll(int... keys){
+        awaitOutboxRoom();
+        lock.lock();
+        try {
+            return removeAllLocked(keys, keys.length);
+        }finally{
+            lock.unlock();
+            broadcast();
+        }
+    }
+    /**
+     * Removing all items with keys from fromKey up to and including toKey
+     * at once and broadcasting them to all receivers as one batch
+     * @param fromKey lowest key of items to be removed
+     * @param toKey highest key of items to be removed
+     * @return items removed, in insertion order
+     */
+    public List<T> removeRange(int fromKey, int toKey){
+        awaitOutboxRoom();
+        lock.lock();
+        try {
+            int[] keys = index.toArray();
+            int count = 0;
+            for (int key: keys){
+                if (key >= fromKey && key <= toKey)
+                    keys[count++] = key;
+            }
+            return removeAllLocked(keys, count);
+        }finally{
+            lock.unlock();
+            broadcast();
+        }
+    }
+    /**
+     * Removing all items at once and broadcasting them to all receivers as
+     * one batch
+     * @return items removed, in insertion order
+     */
+    public List<T> clear(){
+        return removeRange(0, items.length() - 1);
+    }
+    /**
+     * Removes the items of the first count keys, logging them as one batch.
+     * Called under lock, broadcast() to be called after releasing it.
+     */
+    private List<T> removeAllLocked(int[] keys, int count){
+        ArrayList<T> removed = new ArrayList<>(count);
+        int[] removedKeys = new int[count];
+        for (int i = 0; i < count; i++){
+            if (index.remove(keys[i])){
+                removedKeys[removed.size()] = keys[i];
+                removed.add(items.getAndSet(keys[i], null));
+            }
+        }
+        List<T> batch = Collections.unmodifiableList(removed);
+        if (removed.isEmpty())
+            return batch;
+        size = index.size();
+        Snapshot.Change<T> change = null;
+        for (int i = 0; i < removed.size(); i++)
+            change = logChange(false, removedKeys[i], removed.get(i), i == removed.size() - 1 ? batch : null);
+        post(change);
+        return batch;
+    }
+    /**
+     * @param key to look for
+     * @return if an item with key is contained
+     */
+    public boolean contains(int key){
+        return getByKey(key) != null;
+    }
+    /**
+     * @param key of item to look for
+     * @return position of item with key, -1 if not contained
+     */
+    public int indexOf(int key){
+        lock.lock();
+        try {
+            return index.indexOf(key);
+        }finally{
+            lock.unlock();
+        }
+    }
+    /**
+     * @param position of item
+     * @return item at position in insertion order
+     */
+    public T get(int position){
+        lock.lock();
+        try {
+            return items.get(index.get(position));
+        }finally{
+            lock.unlock();
+        }
+    }
+    /**
+     * @param key of item
+     * @return item with key, null if not contained
+     */
+    public T getByKey(int key){
+        return key >= 0 && key < items.length() ? items.get(key) : null;
+    }
+    public int size(){
+        return size;
+    }
+    /**
+     * @return immutable Snapshot of the items contained, in order, as of the
+     * latest change, built under lock if not taken since that change
+     */
+    public Snapshot<T> snapshot(){
+        Snapshot<T> latest = snapshot;
+        if (latest != null)
+            return latest;
+        lock.lock();
+        try {
+            if (snapshot == null){
+                int[] keys = index.toArray();
+                Object[] contained = new Object[keys.length];
+                for (int i = 0; i < keys.length; i++)
+                    contained[i] = items.get(keys[i]);
+                snapshot = Snapshot.of(contained, log[(int)(version % LOG_CAPACITY)]);
+            }
+            return snapshot;
+        }finally{
+            lock.unlock();
+        }
+    }
+    public boolean isEmpty(){
+        return size == 0;
+    }
+    /**
+     * Adds receiver to be notified upon change done to BroadcastingList.
+     * Receiver is notified on whichever thread is broadcasting, use
+     * asynchronous dispatch for receivers bound to a thread.
+     * @param receiver to be added
+     * @return if receiver added successfully
+     */
+    public boolean addReceiver(BroadcastingListReceiver<T> receiver){
+        return receivers.add(receiver);
+    }
+    /**
+     * Adds receiver to be notified upon change done to BroadcastingList
+     * asynchronously on executor. Changes are queued, bursts are coalesced
+     * and delivered in order, see AsyncReceiver.
+     * @param receiver to be added
+     * @param executor to deliver changes on
+     * @param capacity maximum number of changes queued for receiver
+     * @param policy what to do with changes not fitting in the queue
+     * @return AsyncReceiver wrapping receiver, to be used for removing it
+     */
+    public AsyncReceiver<T> addReceiver(BroadcastingListReceiver<T> receiver, Executor executor,
+                                        int capacity, AsyncReceiver.OverflowPolicy policy){
+        AsyncReceiver<T> asyncReceiver = new AsyncReceiver<>(receiver, keyOf, executor, capacity, policy);
+        receivers.add(asyncReceiver);
+        return asyncReceiver;
+    }
+    /**
+     * Removes receiver from list to be notified upon change done to BroadcastingList
+     * @param receiver to be removed
+     * @return if receiver removed successfully
+     */
+    public boolean removeReceiver(BroadcastingListReceiver<T> receiver){
+        return receivers.remove(receiver);
+    }
+    /**
+     * Makes the change of the next version, forgetting the change kept
+     * LOG_CAPACITY versions before it. Called under lock.
+     * @param batch all items of the batch the change ends, null if the
+     *              change is not the last of a batch
+     */
+    private Snapshot.Change<T> logChange(boolean added, int key, T item, List<T> batch){
+        Snapshot.Change<T> previous = log[(int)(version % LOG_CAPACITY)];
+        Snapshot.Change<T> change = new Snapshot.Change<>(++version, added, key, item, batch, previous);
+        int slot = (int)(version % LOG_CAPACITY);
+        log[slot] = change;
+        Snapshot.Change<T> oldest = log[(slot + 1) % LOG_CAPACITY];
+        if (oldest != null)
+            oldest.previous = null;
+        return change;
+    }
+    /**
+     * Queues change for broadcasting and lets go of the Snapshot of the
+     * version before it. Called under lock.
+     */
+    private void post(Snapshot.Change<T> change){
+        snapshot = null;
+        outbox.add(change);
+        outboxSize.incrementAndGet();
+    }
+    /**
+     * Waits until outbox has room for another change. The broadcasting
+     * thread, changing BroadcastingList from a receiver, and threads
+     * delivering to an AsyncReceiver never wait, since broadcasting may be
+     * waiting for them. If interrupted, stops waiting and lets the change be
+     * applied anyway, with the interrupt status set.
+     */
+    private void awaitOutboxRoom(){
+        if (outboxSize.get() < OUTBOX_CAPACITY)
+            return;
+        Thread current = Thread.currentThread();
+        if (current == broadcaster)
+            return;
+        for (BroadcastingListReceiver<T> receiver: receivers){
+            if (receiver instanceof AsyncReceiver && ((AsyncReceiver<?>)receiver).isDeliveryThread(current))
+                return;
+        }
+        outboxWaiters.incrementAndGet();
+        try {
+            synchronized (outboxRoom){
+                while (outboxSize.get() >= OUTBOX_CAPACITY)
+                    outboxRoom.wait();
+            }
+        }catch(InterruptedException e){
+            current.interrupt();
+        }finally{
+            outboxWaiters.decrementAndGet();
+        }
+    }
+    /**
+     * Broadcasts all changes in outbox to all receivers unless another thread
+     * already is. Checks outbox again after letting go, so that no change is
+     * left behind when one thread gives up just as another adds a change.
+     */
+    private void broadcast(){
+        while (!outbox.isEmpty() && broadcasting.compareAndSet(false, true)){
+            broadcaster = Thread.currentThread();
+            try {
+                Snapshot.Change<T> change;
+                while ((change = outbox.poll()) != null){
+                    if (outboxSize.decrementAndGet() < OUTBOX_CAPACITY && outboxWaiters.get() > 0){
+                        synchronized (outboxRoom){
+                            outboxRoom.notifyAll();
+                        }
+                    }
+                    for (BroadcastingListReceiver<T> receiver: receivers){
+                        if (change.batch != null && change.added)
+                            receiver.doOnAddAll(change.batch);
+                        else if (change.batch != null)
+                            receiver.doOnRemoveAll(change.batch);
+                        else if (change.added)
+                            receiver.doOnAdd(change.item);
+                        else
+                            receiver.doOnRemove(change.item);
+                    }
+                }
+            }finally{
+                broadcaster = null;
+                broadcasting.set(false);
+            }
+        }
+    }
+}
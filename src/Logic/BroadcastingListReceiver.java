@@ -1,22 +1,45 @@
-package Logic;
-
-/**
- * Interface to be implemented by classes that want to receive changes done
- * upon BroadcastingList
- * @param <T> generic type that must match generic type of BroadcastinList to be
- *           received from
- */
-public interface BroadcastingListReceiver<T> {
-    /**
-     * Function called for all BroadcastingListReceivers upon item added to a
-     * BroadcastingList
-     * @param item added to BroadcastingList
-     */
-    void doOnAdd(T item);
-    /**
-     * Function called for all BroadcastingListReceivers upon item removed from a
-     * BroadcastingList
-     * @param item removed from BroadcastingList
-     */
-    void doOnRemove(T item);
-}
+package Logic;
+
+import java.util.List;
+
+/**
+ * Interface to be implemented by classes that want to receive changes done
+ * upon BroadcastingList
+ * @param <T> generic type that must match generic type of BroadcastinList to be
+ *           received from
+ */
+public interface BroadcastingListReceiver<T> {
+    /**
+     * Function called for all BroadcastingListReceivers upon item added to a
+     * BroadcastingList
+     * @param item added to BroadcastingList
+     */
+    void doOnAdd(T item);
+    /**
+     * Function called for all BroadcastingListReceivers upon item removed from a
+     * BroadcastingList
+     * @param item removed from BroadcastingList
+     */
+    void doOnRemove(T item);
+    /**
+     * Function called for all BroadcastingListReceivers upon items added to a
+     * BroadcastingList at once, by default calling doOnAdd for each item.
+     * Receivers doing work per change, such as laying out or animating,
+     * override it to do that work once for the whole batch.
+     * @param items added to BroadcastingList, in order
+     */
+    default void doOnAddAll(List<T> items){
+        for (T item: items)
+            doOnAdd(item);
+    }
+    /**
+     * Function called for all BroadcastingListReceivers upon items removed
+     * from a BroadcastingList at once, by default calling doOnRemove for
+     * each item
+     * @param items removed from BroadcastingList
+     */
+    default void doOnRemoveAll(List<T> items){
+        for (T item: items)
+            doOnRemove(item);
+    }
+}
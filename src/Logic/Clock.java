@@ -0,0 +1,18 @@
+package Logic;
+
+/**
+ * Source of the current time in milliseconds, only differences between
+ * two readings being meaningful. Lets time driven classes, such as
+ * TimingWheel, be run on a virtual clock advanced by hand.
+ */
+public interface Clock {
+    /**
+     * Clock of the system, never going backwards
+     */
+    Clock SYSTEM = () -> System.nanoTime() / 1_000_000;
+
+    /**
+     * @return current time in milliseconds
+     */
+    long millis();
+}
@@ -0,0 +1,53 @@
+package Logic;
+
+/**
+ * A completed command from an input device, adding or removing one entry
+ * through Manager
+ */
+public final class Command {
+    private final boolean add;
+    private final int number;
+    private final Lane lane;
+
+    private Command(boolean add, int number, Lane lane){
+        this.add = add;
+        this.number = number;
+        this.lane = lane;
+    }
+    /**
+     * @param number of entry to be added
+     * @param lane to add entry in
+     * @return Command adding entry number in lane
+     */
+    public static Command add(int number, Lane lane){
+        return new Command(true, number, lane);
+    }
+    /**
+     * @param number of entry to be removed
+     * @return Command removing entry number
+     */
+    public static Command remove(int number){
+        return new Command(false, number, Lane.REGULAR);
+    }
+    public boolean isAdd(){
+        return add;
+    }
+    public int getNumber(){
+        return number;
+    }
+    public Lane getLane(){
+        return lane;
+    }
+    /**
+     * Applies Command to manager
+     * @param manager to add or remove entry through
+     * @return if the entry was added or removed
+     */
+    boolean applyTo(Manager manager){
+        return add ? manager.add(number, lane) : manager.remove(number);
+    }
+    @Override
+    public String toString(){
+        return (add ? "ADD " + lane + " " : "REMOVE ") + number;
+    }
+}
@@ -0,0 +1,86 @@
+package Logic;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Single ordered queue through which commands completed on any number of
+ * input devices at once reach Manager. Each device submits whole commands
+ * only, so commands typed at the same time on two devices are applied one
+ * after the other, never interleaved, in the order they were completed.
+ * Commands are applied by one thread of its own, started on the first
+ * submitted command. While held, commands are queued but not applied, as
+ * while entries are being restored on startup.
+ */
+public class CommandQueue {
+    private final Manager manager;
+    private final LinkedBlockingQueue<Command> queue = new LinkedBlockingQueue<>();
+    private Thread thread;
+    /**
+     * If commands are queued without being applied
+     */
+    private boolean held;
+
+    /**
+     * Constructs empty CommandQueue
+     * @param manager to apply commands to
+     */
+    public CommandQueue(Manager manager){
+        this.manager = manager;
+    }
+    /**
+     * Queues command to be applied after all commands submitted before it
+     * @param command to be applied
+     */
+    public void submit(Command command){
+        queue.add(command);
+        start();
+    }
+    /**
+     * Queues commands submitted from now on without applying them until
+     * released. To be called before any command is submitted.
+     */
+    public synchronized void hold(){
+        held = true;
+    }
+    /**
+     * Applies the commands queued while held, in order, and those submitted
+     * from now on
+     */
+    public synchronized void release(){
+        held = false;
+        if (!queue.isEmpty())
+            start();
+    }
+    /**
+     * @return number of commands submitted and not yet applied
+     */
+    public int getQueued(){
+        return queue.size();
+    }
+    private synchronized void start(){
+        if (thread != null || held)
+            return;
+        thread = new Thread(this::run, "QueManager commands");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    /**
+     * Applies commands as they come. A command failing, such as one adding a
+     * number outside the entry space, is logged and skipped, so that the
+     * commands after it are still applied.
+     */
+    private void run(){
+        try {
+            while (true){
+                Command command = queue.take();
+                try {
+                    command.applyTo(manager);
+                }catch(RuntimeException e){
+                    System.out.println("Exception catched: " + command + " failed, " + e);
+                }
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
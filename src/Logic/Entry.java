@@ -1,27 +1,90 @@
-package Logic;
-
-/**
- * Class representing, and only representing, an entry number.
- */
-public class Entry {
-
-    private int number;
-
-    public Entry(int number){
-        this.number = number;
-    }
-
-    public int getNumber(){
-        return number;
-    }
-
-    public boolean equals(Object object){
-        if (!(object instanceof Entry))
-            return false;
-        return number == ((Entry) object).number;
-    }
-
-    public String toString(){
-        return "" + number;
-    }
-}
+package Logic;
+
+/**
+ * Class representing an entry number, its Lane and when it was ready for
+ * collection.
+ * An entry number and Lane together are stored and sent as a single int,
+ * its code, holding the number in the bits below LANE_SHIFT and the code of
+ * the Lane above.
+ */
+public class Entry {
+    /**
+     * Position in the code of an entry of the code of its Lane
+     */
+    public static final int LANE_SHIFT = 24;
+    private static final int NUMBER_MASK = (1 << LANE_SHIFT) - 1;
+
+    private int number;
+    private final Lane lane;
+    /**
+     * System.nanoTime() when Entry was added, ready for collection
+     */
+    private final long readyNanos = System.nanoTime();
+
+    public Entry(int number){
+        this(number, Lane.REGULAR);
+    }
+
+    public Entry(int number, Lane lane){
+        this.number = number;
+        this.lane = lane;
+    }
+
+    public int getNumber(){
+        return number;
+    }
+
+    public Lane getLane(){
+        return lane;
+    }
+
+    public long getReadyNanos(){
+        return readyNanos;
+    }
+
+    /**
+     * @return entry number and Lane as a single non-negative int
+     */
+    public int getCode(){
+        return code(number, lane);
+    }
+
+    /**
+     * @param number of entry
+     * @param lane of entry
+     * @return entry number and lane as a single non-negative int
+     */
+    public static int code(int number, Lane lane){
+        return lane.getCode() << LANE_SHIFT | number;
+    }
+
+    /**
+     * @param code of entry
+     * @return entry number of code
+     */
+    public static int numberOf(int code){
+        return code & NUMBER_MASK;
+    }
+
+    /**
+     * @param code of entry
+     * @return Lane of code, null if code holds no Lane
+     */
+    public static Lane laneOf(int code){
+        return Lane.ofCode(code >>> LANE_SHIFT);
+    }
+
+    public boolean equals(Object object){
+        if (!(object instanceof Entry))
+            return false;
+        return number == ((Entry) object).number;
+    }
+
+    public int hashCode(){
+        return number;
+    }
+
+    public String toString(){
+        return "" + number;
+    }
+}
@@ -0,0 +1,361 @@
+package Logic;
+
+import java.util.Arrays;
+
+/**
+ * Ordered set of entry numbers, keyed directly by number, in one or more
+ * lanes. Numbers are ordered by lane, lane 0 first, and in insertion order
+ * within each lane. Adding, removing, checking for a number and looking up
+ * positions is done without scanning and without allocating, so positions
+ * stay cheap to look up with tens of thousands of numbers contained.
+ * Each lane keeps its numbers in slots in insertion order. Removing a number
+ * leaves a hole in its slot, and a Fenwick tree over the slots counts the
+ * numbers before any slot, so positions are looked up and holes skipped in
+ * logarithmic time. Holes are closed in a single pass once a lane runs out
+ * of slots.
+ */
+public class EntryIndex {
+    /**
+     * Marks an absent number in slotOf and a hole in a lane
+     */
+    private static final int ABSENT = -1;
+    /**
+     * Starting number of slots of a lane, grown on demand up to the key space
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Slot in its lane of each number, ABSENT if number is not contained
+     */
+    private final int[] slotOf;
+    /**
+     * Lane of each contained number
+     */
+    private final byte[] laneOf;
+    private final Sequence[] lanes;
+    /**
+     * Number of numbers contained
+     */
+    private int size;
+
+    /**
+     * Constructs empty EntryIndex of a single lane accepting numbers from 0
+     * up to, but not including, keySpace
+     * @param keySpace number of distinct numbers that can be contained
+     */
+    public EntryIndex(int keySpace){
+        this(keySpace, 1);
+    }
+    /**
+     * Constructs empty EntryIndex accepting numbers from 0 up to, but not
+     * including, keySpace in lanes 0 up to, but not including, laneCount
+     * @param keySpace number of distinct numbers that can be contained
+     * @param laneCount number of lanes, at most 127
+     */
+    public EntryIndex(int keySpace, int laneCount){
+        if (laneCount < 1 || laneCount > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("Lanes must be from 1 to " + Byte.MAX_VALUE + ": " + laneCount);
+        slotOf = new int[keySpace];
+        Arrays.fill(slotOf, ABSENT);
+        laneOf = new byte[keySpace];
+        lanes = new Sequence[laneCount];
+        for (int lane = 0; lane < laneCount; lane++)
+            lanes[lane] = new Sequence(Math.min(keySpace, INITIAL_CAPACITY));
+    }
+    /**
+     * Adds number last in lane 0
+     * @param number to be added
+     * @return false if number already contained
+     * @throws IllegalArgumentException if number is outside the key space
+     */
+    public boolean add(int number){
+        return add(number, 0);
+    }
+    /**
+     * Adds number last in lane
+     * @param number to be added
+     * @param lane to add number to
+     * @return false if number already contained, in any lane
+     * @throws IllegalArgumentException if number is outside the key space or
+     * lane is not a lane
+     */
+    public boolean add(int number, int lane){
+        if (number < 0 || number >= slotOf.length)
+            throw new IllegalArgumentException("Number outside key space: " + number);
+        if (lane < 0 || lane >= lanes.length)
+            throw new IllegalArgumentException("No such lane: " + lane);
+        if (slotOf[number] != ABSENT)
+            return false;
+        Sequence sequence = lanes[lane];
+        if (sequence.end == sequence.numbers.length)
+            makeRoom(sequence);
+        slotOf[number] = sequence.append(number);
+        laneOf[number] = (byte)lane;
+        size++;
+        return true;
+    }
+    /**
+     * Adds the entry of code, see Entry.code, last in the lane of its Lane's
+     * ordinal, unless its number is outside the key space or its Lane is
+     * unknown, as when reading codes written with more entry digits
+     * @param code of entry to be added
+     * @return false if number already contained, outside the key space or
+     * of an unknown Lane
+     */
+    public boolean addCode(int code){
+        int number = Entry.numberOf(code);
+        Lane lane = Entry.laneOf(code);
+        if (number >= slotOf.length || lane == null || lane.ordinal() >= lanes.length)
+            return false;
+        return add(number, lane.ordinal());
+    }
+    /**
+     * Removes number, leaving a hole in its lane
+     * @param number to be removed
+     * @return false if number was not contained
+     */
+    public boolean remove(int number){
+        if (!contains(number))
+            return false;
+        lanes[laneOf[number]].clear(slotOf[number]);
+        slotOf[number] = ABSENT;
+        size--;
+        return true;
+    }
+    /**
+     * @param number to look for
+     * @return if number is contained
+     */
+    public boolean contains(int number){
+        return number >= 0 && number < slotOf.length && slotOf[number] != ABSENT;
+    }
+    /**
+     * @param number to look for
+     * @return lane of number, -1 if not contained
+     */
+    public int laneOf(int number){
+        return contains(number) ? laneOf[number] : -1;
+    }
+    /**
+     * Position of number in order
+     * @param number to look for
+     * @return position of number, -1 if not contained
+     */
+    public int indexOf(int number){
+        if (!contains(number))
+            return -1;
+        int lane = laneOf[number];
+        int position = lanes[lane].rank(slotOf[number]);
+        for (int before = 0; before < lane; before++)
+            position += lanes[before].size;
+        return position;
+    }
+    /**
+     * Number at position in order
+     * @param position of number
+     * @return number at position
+     * @throws IndexOutOfBoundsException if position is not within 0 and size
+     */
+    public int get(int position){
+        if (position < 0 || position >= size)
+            throw new IndexOutOfBoundsException("Position " + position + " of size " + size);
+        int lane = 0;
+        while (position >= lanes[lane].size)
+            position -= lanes[lane++].size;
+        Sequence sequence = lanes[lane];
+        return sequence.numbers[sequence.select(position)];
+    }
+    /**
+     * Code, see Entry.code, of the entry at position in order, its Lane
+     * being the Lane of the ordinal of its lane
+     * @param position of entry
+     * @return code of entry at position
+     */
+    public int codeAt(int position){
+        int number = get(position);
+        return Entry.code(number, Lane.values()[laneOf[number]]);
+    }
+    /**
+     * All numbers in order, walking the slots of each lane once
+     * @return numbers contained, in order
+     */
+    public int[] toArray(){
+        int[] all = new int[size];
+        int count = 0;
+        for (Sequence sequence: lanes){
+            for (int slot = 0; slot < sequence.end; slot++){
+                if (sequence.numbers[slot] != ABSENT)
+                    all[count++] = sequence.numbers[slot];
+            }
+        }
+        return all;
+    }
+    /**
+     * Removes all numbers
+     */
+    public void clear(){
+        for (Sequence sequence: lanes){
+            for (int slot = 0; slot < sequence.end; slot++){
+                if (sequence.numbers[slot] != ABSENT)
+                    slotOf[sequence.numbers[slot]] = ABSENT;
+            }
+            sequence.reset();
+        }
+        size = 0;
+    }
+    public int size(){
+        return size;
+    }
+    public boolean isEmpty(){
+        return size == 0;
+    }
+    /**
+     * @param lane to count numbers of
+     * @return number of numbers in lane
+     */
+    public int laneSize(int lane){
+        return lanes[lane].size;
+    }
+    /**
+     * @return number of distinct numbers that can be contained
+     */
+    public int keySpace(){
+        return slotOf.length;
+    }
+    /**
+     * @return number of lanes
+     */
+    public int laneCount(){
+        return lanes.length;
+    }
+    /**
+     * Makes room for one more slot at the end of sequence, closing holes if
+     * at least half of its slots are holes and otherwise growing it
+     */
+    private void makeRoom(Sequence sequence){
+        int length = sequence.numbers.length;
+        if (sequence.size <= length/2 || length == slotOf.length)
+            sequence.compact(slotOf);
+        else
+            sequence.resize(Math.min(slotOf.length, length * 2), slotOf);
+    }
+
+    /**
+     * Numbers of a lane in slots in insertion order, with a Fenwick tree
+     * counting the numbers in slots
+     */
+    private static class Sequence {
+        /**
+         * Number in each slot, ABSENT marking a hole
+         */
+        private int[] numbers;
+        /**
+         * Fenwick tree over slots, tree[i] counting the numbers in the
+         * i & -i slots ending at slot i - 1
+         */
+        private int[] tree;
+        /**
+         * Number of slots used, holes included
+         */
+        private int end;
+        /**
+         * Number of numbers contained
+         */
+        private int size;
+
+        private Sequence(int capacity){
+            numbers = new int[capacity];
+            tree = new int[capacity + 1];
+        }
+        /**
+         * @return slot number was put in
+         */
+        private int append(int number){
+            numbers[end] = number;
+            change(end, 1);
+            size++;
+            return end++;
+        }
+        private void clear(int slot){
+            numbers[slot] = ABSENT;
+            change(slot, -1);
+            size--;
+        }
+        private void change(int slot, int delta){
+            for (int i = slot + 1; i < tree.length; i += i & -i)
+                tree[i] += delta;
+        }
+        /**
+         * @return number of numbers in slots before slot
+         */
+        private int rank(int slot){
+            int rank = 0;
+            for (int i = slot; i > 0; i -= i & -i)
+                rank += tree[i];
+            return rank;
+        }
+        /**
+         * @return slot of the number at position, from the first slot
+         */
+        private int select(int position){
+            int slot = 0;
+            int remaining = position + 1;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1){
+                if (slot + step < tree.length && tree[slot + step] < remaining){
+                    slot += step;
+                    remaining -= tree[slot];
+                }
+            }
+            return slot;
+        }
+        /**
+         * Moves numbers to the first slots, in order, updating slotOf
+         */
+        private void compact(int[] slotOf){
+            int to = 0;
+            for (int from = 0; from < end; from++){
+                int number = numbers[from];
+                if (number != ABSENT){
+                    numbers[to] = number;
+                    slotOf[number] = to++;
+                }
+            }
+            end = to;
+            rebuild();
+        }
+        /**
+         * Moves numbers to the first slots of capacity slots
+         */
+        private void resize(int capacity, int[] slotOf){
+            int[] old = numbers;
+            int oldEnd = end;
+            numbers = new int[capacity];
+            tree = new int[capacity + 1];
+            end = 0;
+            for (int slot = 0; slot < oldEnd; slot++){
+                if (old[slot] != ABSENT){
+                    numbers[end] = old[slot];
+                    slotOf[old[slot]] = end++;
+                }
+            }
+            rebuild();
+        }
+        /**
+         * Builds the Fenwick tree from numbers in linear time
+         */
+        private void rebuild(){
+            Arrays.fill(tree, 0);
+            for (int i = 1; i < tree.length; i++){
+                if (i <= end)
+                    tree[i]++;
+                int parent = i + (i & -i);
+                if (parent < tree.length)
+                    tree[parent] += tree[i];
+            }
+        }
+        private void reset(){
+            Arrays.fill(tree, 0);
+            end = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package Logic;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes entries that have been shown for a fixed time without being
+ * collected, so that forgotten orders fade out like collected ones. Expired
+ * entries are removed through Manager, reaching every receiver the same way
+ * as entries removed by hand.
+ * Deadlines of all entries are kept in a single TimingWheel ticked by one
+ * thread, so scheduling and cancelling an expiry costs the same however
+ * many entries are shown. The thread only ticks while any entry is waiting
+ * to expire, so that it is not woken while there are no entries. The
+ * TimingWheel can be ticked by hand through tick() on a virtual Clock
+ * instead.
+ */
+public class Expiry implements BroadcastingListReceiver<Entry>, Closeable {
+    /**
+     * Precision of expiry
+     */
+    private static final long TICK_MILLIS = 1000;
+    /**
+     * Buckets of the TimingWheel, one turn lasting BUCKETS ticks
+     */
+    private static final int BUCKETS = 512;
+
+    private final Manager manager;
+    private final TimingWheel wheel;
+    private final long expiryMillis;
+    private ScheduledExecutorService ticker;
+    /**
+     * Ticking of the TimingWheel, null while no entry is waiting to expire
+     */
+    private ScheduledFuture<?> ticking;
+
+    /**
+     * Constructs Expiry removing entries expiryMillis after being added, to
+     * be added as receiver of the list of entries and started by start()
+     * @param manager to remove expired entries through
+     * @param expiryMillis time after being added an entry is removed
+     * @param keySpace number of distinct entry numbers
+     * @param clock to tell the time by
+     */
+    public Expiry(Manager manager, long expiryMillis, int keySpace, Clock clock){
+        this.manager = manager;
+        this.expiryMillis = expiryMillis;
+        wheel = new TimingWheel(keySpace, BUCKETS, TICK_MILLIS, clock);
+    }
+    /**
+     * Starts ticking the TimingWheel every TICK_MILLIS on a thread of its
+     * own, for as long as any entry is waiting to expire
+     */
+    public synchronized void start(){
+        if (ticker != null)
+            return;
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "QueManager expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (wheel.size() > 0)
+            resumeTicking();
+    }
+    /**
+     * Ticks the TimingWheel if started and not already ticking
+     */
+    private synchronized void resumeTicking(){
+        if (ticker != null && ticking == null)
+            ticking = ticker.scheduleAtFixedRate(this::tickWhileScheduled, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    /**
+     * Ticks the TimingWheel, then stops ticking if no entry is left waiting
+     * to expire, until the next is scheduled
+     */
+    private void tickWhileScheduled(){
+        tick();
+        synchronized (this){
+            if (wheel.size() == 0 && ticking != null){
+                ticking.cancel(false);
+                ticking = null;
+            }
+        }
+    }
+    /**
+     * Removes all entries due by now on the Clock
+     * @return number of entries expired
+     */
+    public int tick(){
+        return wheel.advance(this::expire);
+    }
+    /**
+     * @return number of entries waiting to expire
+     */
+    public int getScheduled(){
+        return wheel.size();
+    }
+    /**
+     * Schedules expiry of item
+     * @param item added to BroadcastingList
+     */
+    @Override
+    public void doOnAdd(Entry item) {
+        wheel.schedule(item.getNumber(), expiryMillis);
+        resumeTicking();
+    }
+    /**
+     * Cancels expiry of item, collected or expired
+     * @param item removed from BroadcastingList
+     */
+    @Override
+    public void doOnRemove(Entry item) {
+        wheel.cancel(item.getNumber());
+    }
+    @Override
+    public synchronized void close(){
+        if (ticker != null)
+            ticker.shutdownNow();
+    }
+    /**
+     * Removes entry number unless it has been added again since it expired
+     */
+    private void expire(int number){
+        if (!wheel.isScheduled(number))
+            manager.expire(number);
+    }
+}
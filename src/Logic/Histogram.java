@@ -0,0 +1,140 @@
+package Logic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory histogram of non-negative values, such as durations in
+ * nanoseconds. Values below 64 are counted exactly, larger values in
+ * buckets 1/32 of their power of two wide, so percentiles are accurate to
+ * about 3% over the whole range of long. Recording is lock free and never
+ * allocates.
+ */
+public class Histogram implements HistogramMBean {
+    /**
+     * Values counted exactly, below which buckets are one wide
+     */
+    private static final int LINEAR_BUCKETS = 64;
+    /**
+     * Bits of a value kept below its highest set bit
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS - 1)*SUB_BUCKETS;
+    private static final double NANOS_PER_MILLI = 1_000_000;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records value, negative values being recorded as 0
+     * @param value to be recorded
+     */
+    public void record(long value){
+        if (value < 0)
+            value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long previous;
+        while (value > (previous = max.get()) && !max.compareAndSet(previous, value));
+    }
+    /**
+     * Records time passed since startNanos
+     * @param startNanos System.nanoTime() at start
+     */
+    public void recordSince(long startNanos){
+        record(System.nanoTime() - startNanos);
+    }
+    /**
+     * Value below which percent of recorded values are, rounded up to the
+     * upper end of its bucket
+     * @param percent from 0 to 100
+     * @return value at percent, 0 if nothing is recorded
+     */
+    public long percentile(double percent){
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long)Math.ceil(total * percent / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            seen += counts.get(bucket);
+            if (seen >= rank)
+                return Math.min(upperBoundOf(bucket), max.get());
+        }
+        return max.get();
+    }
+    /**
+     * Adds all values recorded in other to this Histogram
+     * @param other Histogram to add
+     */
+    public void add(Histogram other){
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            long bucketCount = other.counts.get(bucket);
+            if (bucketCount != 0)
+                counts.addAndGet(bucket, bucketCount);
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        long otherMax = other.max.get();
+        long previous;
+        while (otherMax > (previous = max.get()) && !max.compareAndSet(previous, otherMax));
+    }
+    @Override
+    public void reset(){
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            counts.set(bucket, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+    @Override
+    public long getCount(){
+        return count.get();
+    }
+    public long getSum(){
+        return sum.get();
+    }
+    public long getMax(){
+        return max.get();
+    }
+    @Override
+    public double getMeanMillis(){
+        long total = count.get();
+        return total == 0 ? 0 : sum.get() / (double)total / NANOS_PER_MILLI;
+    }
+    @Override
+    public double getP50Millis(){
+        return percentile(50) / NANOS_PER_MILLI;
+    }
+    @Override
+    public double getP95Millis(){
+        return percentile(95) / NANOS_PER_MILLI;
+    }
+    @Override
+    public double getP99Millis(){
+        return percentile(99) / NANOS_PER_MILLI;
+    }
+    @Override
+    public double getMaxMillis(){
+        return max.get() / NANOS_PER_MILLI;
+    }
+    private static int bucketOf(long value){
+        if (value < LINEAR_BUCKETS)
+            return (int)value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (shift - 1)*SUB_BUCKETS + subBucket;
+    }
+    private static long upperBoundOf(int bucket){
+        if (bucket < LINEAR_BUCKETS)
+            return bucket;
+        int shift = (bucket - LINEAR_BUCKETS)/SUB_BUCKETS + 1;
+        long subBucket = (bucket - LINEAR_BUCKETS)%SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
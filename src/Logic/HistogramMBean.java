@@ -0,0 +1,17 @@
+package Logic;
+
+/**
+ * JMX view of a Histogram of durations, in milliseconds
+ */
+public interface HistogramMBean {
+    long getCount();
+    double getMeanMillis();
+    double getP50Millis();
+    double getP95Millis();
+    double getP99Millis();
+    double getMaxMillis();
+    /**
+     * Forgets all recorded values
+     */
+    void reset();
+}
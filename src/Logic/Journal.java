@@ -0,0 +1,312 @@
+package Logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only journal of entries added and removed, from which the list of
+ * entries can be restored after a restart.
+ * Changes are handed to a writer thread and never wait for the disk. The
+ * writer thread writes all changes handed to it since its last write at
+ * once and forces them to disk with one call. Every SNAPSHOT_INTERVAL changes
+ * the current entries are written to a compact snapshot and the journal is
+ * emptied, so restoring never reads more than one snapshot and
+ * SNAPSHOT_INTERVAL changes.
+ *
+ * If writing fails, the failure is reported once and the Journal stops
+ * taking changes, dropping those not yet written, rather than keeping them
+ * with nothing left to write them.
+ *
+ * Snapshot and journal carry a generation. A journal older than the
+ * snapshot is already contained in it, so a crash between writing a
+ * snapshot and emptying the journal restores correctly.
+ */
+public class Journal implements BroadcastingListReceiver<Entry>, Closeable {
+    private static final String JOURNAL_FILE = "entries.journal";
+    private static final String SNAPSHOT_FILE = "entries.snapshot";
+    private static final int MAGIC = 0x51554d31;
+    /**
+     * Bytes of magic and generation heading both files
+     */
+    private static final int HEADER_BYTES = 12;
+    /**
+     * Bytes of a journal record, one byte telling addition or removal and
+     * four of entry code for additions, see Entry.code, and entry number for
+     * removals
+     */
+    private static final int RECORD_BYTES = 5;
+    private static final byte ADDED = '+';
+    private static final byte REMOVED = '-';
+    /**
+     * Number of changes after which a snapshot is taken
+     */
+    private static final int SNAPSHOT_INTERVAL = 10_000;
+
+    private final Path directory;
+    private final FileChannel journal;
+    /**
+     * Entries as of the last change written, owned by the writer thread
+     */
+    private final EntryIndex written;
+    private final int[] restored;
+    private final Thread writer;
+    private long generation;
+    private int sinceSnapshot;
+    /**
+     * Changes handed over and not yet taken by the writer, entry code for
+     * additions and bitwise complement of entry number for removals
+     */
+    private int[] pending = new int[256];
+    private int pendingCount;
+    private boolean closed;
+    /**
+     * If the writer thread stopped on failing to write, changes no longer
+     * being taken
+     */
+    private boolean failed;
+
+    /**
+     * Opens journal in directory, restoring entries from snapshot and journal
+     * if there are any. Restored entries are available through getRestored()
+     * and are not written again.
+     * @param directory to keep snapshot and journal in, created if missing
+     * @param keySpace number of distinct entry numbers
+     * @throws IOException if snapshot or journal can't be read or opened
+     */
+    public Journal(Path directory, int keySpace) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        written = new EntryIndex(keySpace, Lane.values().length);
+        long snapshotGeneration = readSnapshot();
+        generation = snapshotGeneration;
+        journal = FileChannel.open(directory.resolve(JOURNAL_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayJournal(snapshotGeneration);
+        restored = new int[written.size()];
+        for (int i = 0; i < restored.length; i++)
+            restored[i] = written.codeAt(i);
+        writer = new Thread(this::write, "QueManager journal");
+        writer.setDaemon(true);
+    }
+    /**
+     * Starts writing changes received to disk
+     */
+    public void start(){
+        writer.start();
+    }
+    /**
+     * @return codes of entries restored on opening, see Entry.code, in order
+     * of Lane and insertion
+     */
+    public int[] getRestored(){
+        return restored.clone();
+    }
+    /**
+     * Hands addition of item over to the writer thread
+     * @param item added to BroadcastingList
+     */
+    @Override
+    public void doOnAdd(Entry item) {
+        handOver(item.getCode());
+    }
+    /**
+     * Hands removal of item over to the writer thread
+     * @param item removed from BroadcastingList
+     */
+    @Override
+    public void doOnRemove(Entry item) {
+        handOver(~item.getNumber());
+    }
+    /**
+     * Writes all changes handed over, then stops the writer thread
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this){
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+    /**
+     * @return if writing failed, changes no longer being journaled
+     */
+    public synchronized boolean isFailed(){
+        return failed;
+    }
+    private synchronized void handOver(int change){
+        if (failed)
+            return;
+        if (pendingCount == pending.length)
+            pending = Arrays.copyOf(pending, pending.length*2);
+        pending[pendingCount++] = change;
+        notifyAll();
+    }
+    /**
+     * Writer thread loop, taking all changes handed over at once and writing
+     * them with a single write and force
+     */
+    private void write(){
+        int[] taken = new int[256];
+        ByteBuffer buffer = ByteBuffer.allocate(taken.length * RECORD_BYTES);
+        try {
+            while (true){
+                int count;
+                synchronized (this){
+                    while (pendingCount == 0 && !closed)
+                        wait();
+                    if (pendingCount == 0)
+                        return;
+                    int[] swap = taken;
+                    taken = pending;
+                    pending = swap;
+                    count = pendingCount;
+                    pendingCount = 0;
+                }
+                if (buffer.capacity() < count * RECORD_BYTES)
+                    buffer = ByteBuffer.allocate(taken.length * RECORD_BYTES);
+                buffer.clear();
+                for (int i = 0; i < count; i++){
+                    int change = taken[i];
+                    if (change >= 0){
+                        written.addCode(change);
+                        buffer.put(ADDED).putInt(change);
+                    }else{
+                        written.remove(~change);
+                        buffer.put(REMOVED).putInt(~change);
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining())
+                    journal.write(buffer);
+                journal.force(false);
+                sinceSnapshot += count;
+                if (sinceSnapshot >= SNAPSHOT_INTERVAL)
+                    writeSnapshot();
+            }
+        }catch(IOException e){
+            System.out.println("Exception catched: Journal stopped, " + e.getMessage());
+            synchronized (this){
+                failed = true;
+                pending = new int[0];
+                pendingCount = 0;
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * Writes the entries written so far as a snapshot of the next generation,
+     * then empties the journal and marks it with the same generation
+     */
+    private void writeSnapshot() throws IOException {
+        generation++;
+        ByteBuffer snapshot = ByteBuffer.allocate(HEADER_BYTES + 4 + 4*written.size());
+        snapshot.putInt(MAGIC).putLong(generation).putInt(written.size());
+        for (int i = 0; i < written.size(); i++)
+            snapshot.putInt(written.codeAt(i));
+        snapshot.flip();
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            while (snapshot.hasRemaining())
+                channel.write(snapshot);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal.truncate(0);
+        writeJournalHeader();
+        journal.force(true);
+        sinceSnapshot = 0;
+    }
+    private void writeJournalHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putLong(generation).flip();
+        journal.position(0);
+        while (header.hasRemaining())
+            journal.write(header);
+    }
+    /**
+     * Reads snapshot into written
+     * @return generation of snapshot, 0 if there is none
+     */
+    private long readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file))
+            return 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer snapshot = readAll(channel);
+            if (snapshot.remaining() < HEADER_BYTES + 4 || snapshot.getInt() != MAGIC)
+                throw new IOException("Not a snapshot: " + file);
+            long snapshotGeneration = snapshot.getLong();
+            int count = snapshot.getInt();
+            for (int i = 0; i < count; i++)
+                written.addCode(snapshot.getInt());
+            return snapshotGeneration;
+        }
+    }
+    /**
+     * Replays journal onto written if it is not already contained in the
+     * snapshot, otherwise empties it. Leaves journal positioned for
+     * appending after its last complete record.
+     */
+    private void replayJournal(long snapshotGeneration) throws IOException {
+        long size = journal.size();
+        if (size < HEADER_BYTES){
+            journal.truncate(0);
+            writeJournalHeader();
+            return;
+        }
+        ByteBuffer records = readAll(journal);
+        if (records.getInt() != MAGIC)
+            throw new IOException("Not a journal: " + directory.resolve(JOURNAL_FILE));
+        long journalGeneration = records.getLong();
+        if (journalGeneration < snapshotGeneration){
+            journal.truncate(0);
+            writeJournalHeader();
+            return;
+        }
+        generation = journalGeneration;
+        while (records.remaining() >= RECORD_BYTES){
+            byte change = records.get();
+            int value = records.getInt();
+            if (change == ADDED && value >= 0)
+                written.addCode(value);
+            else if (change == REMOVED && value >= 0)
+                written.remove(value);
+            else{
+                records.position(records.position() - RECORD_BYTES);
+                break;
+            }
+            sinceSnapshot++;
+        }
+        //Cut off a record torn by a crash, or anything unreadable after it
+        journal.truncate(records.position());
+        journal.position(records.position());
+    }
+    /**
+     * Reads channel from start to end into a buffer. Files are read rather
+     * than mapped since a mapped file can't be replaced or truncated on
+     * Windows until the mapping is garbage collected.
+     */
+    private static ByteBuffer readAll(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+        channel.position(0);
+        while (buffer.hasRemaining() && channel.read(buffer) != -1);
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,43 @@
+package Logic;
+
+/**
+ * Priority lane of an entry. Lanes are shown in the order declared, VIP
+ * first, and entries oldest first within each lane.
+ */
+public enum Lane {
+    /**
+     * Entries of guests to be served first
+     */
+    VIP(2),
+    /**
+     * Entries held up in the kitchen, shown before regular entries to make
+     * up for the wait
+     */
+    DELAYED(1),
+    REGULAR(0);
+
+    /**
+     * Number of Lane as stored in the Journal and sent to display-only
+     * processes, REGULAR being 0 so that numbers stored before there were
+     * lanes read as REGULAR
+     */
+    private final int code;
+
+    Lane(int code){
+        this.code = code;
+    }
+    public int getCode(){
+        return code;
+    }
+    /**
+     * @param code of Lane
+     * @return Lane of code, null if no Lane has code
+     */
+    public static Lane ofCode(int code){
+        for (Lane lane: values()){
+            if (lane.code == code)
+                return lane;
+        }
+        return null;
+    }
+}
@@ -1,67 +1,415 @@
-/**
- * @author Simon Gombrii
- * @version 1.0
- * @since 2019-10-30
- *
- * Note: Some of this code was written by the company of wine (read "all").
- */
-
-package Logic;
-
-import Graphics.Canvas;
-
-/**
- * The main class. It manages all additions to and removals from the list of
- * entries and manages the unofficial AutoAdd feature. An instance of this class
- * is available to all other classes for adding and removal of entries.
- */
-public class Manager {
-
-    /**
-     * List of current entries
-     */
-    private BroadcastingList<Entry> entries = new BroadcastingList<>();
-    /**
-     * Instance of this Manager available to other classes to add and remove
-     * new entries
-     */
-    public static Manager instance;
-    private static final int START_AUTO = 0;
-    private static int autoCounter = START_AUTO;
-    public static final int MAX_ENTRY_DIGITS = 2;
-    private static final boolean AUTO_ADD = false;
-
-    public static void main(String[] args){
-        instance = new Manager();
-        instance.run();
-    }
-    private void run(){
-        entries.addReceiver(new Canvas());
-    }
-    /**
-     * Adding new Entry to list of entries.
-     * @param entryNumber the number given to the entry being added
-     * @return if added successfully
-     */
-    public boolean add(int entryNumber){
-        return entries.add(new Entry(entryNumber));
-    }
-    /**
-     * Removing Entry from list of entries.
-     * @param entryNumber the number of the Entry to be removed
-     * @return if added successfully
-     */
-    public boolean remove(int entryNumber){
-        return entries.remove(new Entry(entryNumber));
-    }
-    /**
-     * Supplies a number between variable START_AUTO and MAX_ENTRY_DIGITS
-     * @return autoCounter + 1
-     */
-    public int autoNext(){
-        return autoCounter++%(int)(Math.pow(10, MAX_ENTRY_DIGITS));
-    }
-    public boolean autoAddOn(){
-        return AUTO_ADD;
-    }
-}
+/**
+ * @author Simon Gombrii
+ * @version 1.0
+ * @since 2019-10-30
+ *
+ * Note: Some of this code was written by the company of wine (read "all").
+ */
+
+package Logic;
+
+import Graphics.ActiveCanvas;
+import Graphics.Canvas;
+import Input.DeviceInput;
+import Network.IntakeServer;
+import Network.ReplicaClient;
+import Network.ReplicationServer;
+
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The main class. It manages all additions to and removals from the list of
+ * entries and manages the unofficial AutoAdd feature. An instance of this class
+ * is available to all other classes for adding and removal of entries.
+ * Adding and removing entries is safe from any number of threads at once.
+ */
+public class Manager {
+
+    /**
+     * System property giving the number of digits of entry numbers, from 1
+     * to MAX_SUPPORTED_DIGITS, 2 if not set
+     */
+    private static final String ENTRY_DIGITS_PROPERTY = "quemanager.entry.digits";
+    private static final int MAX_SUPPORTED_DIGITS = 6;
+    public static final int MAX_ENTRY_DIGITS =
+            Math.max(1, Math.min(MAX_SUPPORTED_DIGITS, Integer.getInteger(ENTRY_DIGITS_PROPERTY, 2)));
+    /**
+     * Number of distinct entry numbers, entry numbers ranging from 0 up to,
+     * but not including, ENTRY_SPACE
+     */
+    public static final int ENTRY_SPACE = powerOfTen(MAX_ENTRY_DIGITS);
+    /**
+     * List of current entries, indexed by entry number
+     */
+    private BroadcastingList<Entry> entries = new BroadcastingList<>(Entry::getNumber, ENTRY_SPACE);
+    /**
+     * Queue through which commands from all input devices are applied
+     */
+    private final CommandQueue commands = new CommandQueue(this);
+    /**
+     * Instance of this Manager available to other classes to add and remove
+     * new entries
+     */
+    public static volatile Manager instance;
+    private static final int START_AUTO = 0;
+    private static final AtomicInteger autoCounter = new AtomicInteger(START_AUTO);
+    private static final boolean AUTO_ADD = false;
+    /**
+     * Maximum number of changes queued for the Canvas before adding and
+     * removing entries waits for the Canvas to catch up
+     */
+    private static final int CANVAS_QUEUE_CAPACITY = 1024;
+    /**
+     * System property giving the port on which IntakeServer accepts
+     * commands, IntakeServer not started if not set
+     */
+    private static final String INTAKE_PORT_PROPERTY = "quemanager.intake.port";
+    /**
+     * System property giving the address IntakeServer listens on, loopback
+     * only if not set
+     */
+    private static final String INTAKE_HOST_PROPERTY = "quemanager.intake.host";
+    /**
+     * System property giving the directory of the Journal, entries not
+     * journaled if set to nothing
+     */
+    private static final String JOURNAL_DIRECTORY_PROPERTY = "quemanager.journal.dir";
+    private static final String DEFAULT_JOURNAL_DIRECTORY = "Journal";
+    /**
+     * System property giving the interval in seconds of logging a summary of
+     * Metrics, never logged if not set
+     */
+    private static final String METRICS_LOG_PROPERTY = "quemanager.metrics.log.seconds";
+    /**
+     * System properties giving the port and address on which
+     * ReplicationServer replicates entries to display-only processes, not
+     * replicated if no port is set and only to loopback if no address is set
+     */
+    private static final String REPLICATION_PORT_PROPERTY = "quemanager.replication.port";
+    private static final String REPLICATION_HOST_PROPERTY = "quemanager.replication.host";
+    /**
+     * System property giving the minutes after which an entry not collected
+     * is removed, entries never expiring if not set
+     */
+    private static final String EXPIRY_PROPERTY = "quemanager.expiry.minutes";
+    /**
+     * System property giving a comma separated list of paths of device files
+     * or named pipes of input devices, - for standard input, none read if
+     * not set
+     */
+    private static final String INPUT_DEVICES_PROPERTY = "quemanager.input.devices";
+    /**
+     * System property giving host:port of the ReplicationServer to take
+     * entries from, making this a display-only process
+     */
+    private static final String REPLICATE_FROM_PROPERTY = "quemanager.replicate.from";
+    /**
+     * If entries are taken from another process rather than typed in
+     */
+    private volatile boolean displayOnly;
+
+    public static void main(String[] args){
+        instance = new Manager();
+        instance.run();
+    }
+    /**
+     * Starts QueManager. The Canvas, or the ActiveCanvas if chosen, is
+     * created first, so that the window is shown while everything else
+     * starts. Commands typed meanwhile are held until entries are restored
+     * from the Journal and the Journal receives every change, so that they
+     * are journaled and applied after all restored entries.
+     */
+    private void run(){
+        String replicateFrom = System.getProperty(REPLICATE_FROM_PROPERTY);
+        displayOnly = replicateFrom != null;
+        commands.hold();
+        if (ActiveCanvas.isChosen()){
+            ActiveCanvas canvas = ActiveCanvas.open();
+            addReceiver(canvas, canvas);
+        }else{
+            addReceiver(Canvas.createLater(), EventQueue::invokeLater);
+        }
+        Metrics.instance.setOpenOrders(this::size);
+        Metrics.instance.start(Long.getLong(METRICS_LOG_PROPERTY, 0));
+        if (displayOnly){
+            commands.release();
+            startReplica(replicateFrom);
+            return;
+        }
+        startReplication();
+        startExpiry();
+        startJournal();
+        commands.release();
+        startIntake();
+        startInput();
+    }
+    /**
+     * Adds receiver of all changes to entries, delivered on executor the same
+     * way as to the Canvas
+     * @param receiver to be added
+     * @param executor to deliver changes on, EventQueue::invokeLater for
+     *                 Swing receivers
+     * @return AsyncReceiver wrapping receiver
+     */
+    public AsyncReceiver<Entry> addReceiver(BroadcastingListReceiver<Entry> receiver, Executor executor){
+        return entries.addReceiver(receiver, executor, CANVAS_QUEUE_CAPACITY, AsyncReceiver.OverflowPolicy.BLOCK);
+    }
+    /**
+     * @return number of entries currently added
+     */
+    public int size(){
+        return entries.size();
+    }
+    /**
+     * Takes the current entries, in the order they were added, without
+     * locking. Readers holding an earlier Snapshot can ask it for the
+     * changes since.
+     * @return immutable Snapshot of the entries as of the latest change
+     */
+    public Snapshot<Entry> snapshot(){
+        return entries.snapshot();
+    }
+    /**
+     * @return if entries are taken from another process, in which case
+     * entries are not to be typed in
+     */
+    public boolean isDisplayOnly(){
+        return displayOnly;
+    }
+    /**
+     * Starts ReplicationServer if a port is configured. Started before
+     * entries are restored, so that restored entries are replicated too.
+     */
+    private void startReplication(){
+        int port = Integer.getInteger(REPLICATION_PORT_PROPERTY, 0);
+        if (port <= 0)
+            return;
+        String host = System.getProperty(REPLICATION_HOST_PROPERTY, "127.0.0.1");
+        try {
+            ReplicationServer server = new ReplicationServer(new InetSocketAddress(host, port), ENTRY_SPACE);
+            entries.addReceiver(server);
+            server.start();
+        }catch(IOException e){
+            System.out.println("Exception catched: Replication not started, " + e.getMessage());
+        }
+    }
+    /**
+     * Starts taking entries from the ReplicationServer at address
+     * @param address host:port of ReplicationServer
+     */
+    private void startReplica(String address){
+        int colon = address.lastIndexOf(':');
+        try {
+            InetSocketAddress server = new InetSocketAddress(address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1)));
+            new ReplicaClient(this, server, ENTRY_SPACE).start();
+        }catch(IllegalArgumentException | IndexOutOfBoundsException e){
+            System.out.println("Exception catched: Not host:port, " + address);
+        }
+    }
+    /**
+     * Starts expiring entries if an expiry is configured. Started before
+     * entries are restored, so that restored entries expire too.
+     */
+    private void startExpiry(){
+        long minutes = Long.getLong(EXPIRY_PROPERTY, 0);
+        if (minutes <= 0)
+            return;
+        Expiry expiry = new Expiry(this, TimeUnit.MINUTES.toMillis(minutes), ENTRY_SPACE, Clock.SYSTEM);
+        entries.addReceiver(expiry);
+        expiry.start();
+    }
+    /**
+     * Restores entries from the Journal, if journaling is not turned off, and
+     * journals all changes from then on
+     */
+    private void startJournal(){
+        String directory = System.getProperty(JOURNAL_DIRECTORY_PROPERTY, DEFAULT_JOURNAL_DIRECTORY);
+        if (directory.isEmpty())
+            return;
+        try {
+            Journal journal = new Journal(Paths.get(directory), ENTRY_SPACE);
+            for (int code: journal.getRestored())
+                add(Entry.numberOf(code), Entry.laneOf(code));
+            entries.addReceiver(journal);
+            journal.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                }catch(IOException e){
+                    System.out.println("Exception catched: Journal not closed, " + e.getMessage());
+                }
+            }));
+        }catch(IOException e){
+            System.out.println("Exception catched: Journal not opened, " + e.getMessage());
+        }
+    }
+    /**
+     * Starts IntakeServer if a port is configured
+     */
+    private void startIntake(){
+        int port = Integer.getInteger(INTAKE_PORT_PROPERTY, 0);
+        if (port <= 0)
+            return;
+        String host = System.getProperty(INTAKE_HOST_PROPERTY, "127.0.0.1");
+        try {
+            new IntakeServer(this, new InetSocketAddress(host, port)).start();
+        }catch(IOException e){
+            System.out.println("Exception catched: Intake server not started, " + e.getMessage());
+        }
+    }
+    /**
+     * Starts reading each configured input device on a thread of its own
+     */
+    private void startInput(){
+        String devices = System.getProperty(INPUT_DEVICES_PROPERTY, "");
+        for (String path: devices.split(",")){
+            if (!path.isBlank())
+                new DeviceInput(path.trim(), this).start();
+        }
+    }
+    /**
+     * Queues command to be applied after all commands submitted before it,
+     * from whichever input device
+     * @param command completed on an input device
+     */
+    public void submit(Command command){
+        commands.submit(command);
+    }
+    /**
+     * Adding new Entry to list of entries in Lane REGULAR.
+     * @param entryNumber the number given to the entry being added
+     * @return if added successfully, false if entryNumber is already added
+     * @throws IllegalArgumentException if entryNumber is not an entry number
+     */
+    public boolean add(int entryNumber){
+        return add(entryNumber, Lane.REGULAR);
+    }
+    /**
+     * Adding new Entry to list of entries.
+     * @param entryNumber the number given to the entry being added
+     * @param lane the entry is shown in
+     * @return if added successfully, false if entryNumber is already added,
+     * in any Lane
+     * @throws IllegalArgumentException if entryNumber is not an entry number
+     */
+    public boolean add(int entryNumber, Lane lane){
+        long start = System.nanoTime();
+        boolean added = entries.add(new Entry(entryNumber, lane));
+        Metrics.instance.add.recordSince(start);
+        return added;
+    }
+    /**
+     * Removing Entry from list of entries, recording how long it waited to be
+     * collected.
+     * @param entryNumber the number of the Entry to be removed
+     * @return if removed successfully
+     */
+    public boolean remove(int entryNumber){
+        return remove(entryNumber, true);
+    }
+    /**
+     * Removing Entry not collected in time from list of entries, the same
+     * way as one collected but without counting its wait time.
+     * @param entryNumber the number of the Entry to be removed
+     * @return if removed successfully
+     */
+    public boolean expire(int entryNumber){
+        return remove(entryNumber, false);
+    }
+    /**
+     * Adding new entries all at once, as when bringing back a batch of
+     * delayed orders. Receivers get them as one batch, so the Canvas lays
+     * out once for all of them.
+     * @param entryNumbers numbers given to the entries being added, numbers
+     *                     already added being skipped
+     * @param lane the entries are shown in
+     * @return number of entries added
+     * @throws IllegalArgumentException if any number is not an entry number,
+     * in which case none is added
+     */
+    public int addAll(int[] entryNumbers, Lane lane){
+        long start = System.nanoTime();
+        ArrayList<Entry> batch = new ArrayList<>(entryNumbers.length);
+        for (int entryNumber: entryNumbers)
+            batch.add(new Entry(entryNumber, lane));
+        int added = entries.addAll(batch).size();
+        Metrics.instance.add.recordSince(start);
+        return added;
+    }
+    /**
+     * Removing entries all at once, recording how long each waited to be
+     * collected. Receivers get them as one batch, so the Canvas fades them
+     * out together and lays out once.
+     * @param entryNumbers numbers of the entries to be removed, numbers not
+     *                     added being skipped
+     * @return number of entries removed
+     */
+    public int removeAll(int... entryNumbers){
+        long start = System.nanoTime();
+        return collected(entries.removeAll(entryNumbers), start);
+    }
+    /**
+     * Removing all entries numbered from one number up to and including
+     * another all at once, as when everything from 10 to 25 has been
+     * collected
+     * @param from lowest number of entries to be removed
+     * @param to highest number of entries to be removed
+     * @return number of entries removed
+     */
+    public int removeRange(int from, int to){
+        long start = System.nanoTime();
+        return collected(entries.removeRange(from, to), start);
+    }
+    /**
+     * Removing all entries all at once
+     * @return number of entries removed
+     */
+    public int clear(){
+        long start = System.nanoTime();
+        return collected(entries.clear(), start);
+    }
+    private int collected(List<Entry> removed, long start){
+        Metrics.instance.remove.recordSince(start);
+        for (Entry entry: removed)
+            Metrics.instance.waitTimes.collected(entry);
+        return removed.size();
+    }
+    private boolean remove(int entryNumber, boolean collected){
+        long start = System.nanoTime();
+        Entry removed = entries.removeKey(entryNumber);
+        Metrics.instance.remove.recordSince(start);
+        if (removed == null)
+            return false;
+        if (collected)
+            Metrics.instance.waitTimes.collected(removed);
+        else
+            Metrics.instance.expired();
+        return true;
+    }
+    /**
+     * Supplies the next entry number, counting from START_AUTO and wrapping
+     * around after the largest entry number
+     * @return next entry number
+     */
+    public int autoNext(){
+        return Math.floorMod(autoCounter.getAndIncrement(), ENTRY_SPACE);
+    }
+    public boolean autoAddOn(){
+        return AUTO_ADD;
+    }
+    private static int powerOfTen(int exponent){
+        int power = 1;
+        for (int i = 0; i < exponent; i++)
+            power *= 10;
+        return power;
+    }
+}
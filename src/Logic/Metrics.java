@@ -0,0 +1,249 @@
+package Logic;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.awt.EventQueue;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Latency and throughput of the hot paths, from keystroke to pixel.
+ * Recording is lock free and never allocates, so it is always on. Metrics
+ * are exposed through JMX under the domain QueManager, and optionally
+ * summarised on one line at a fixed interval.
+ * All durations are recorded in nanoseconds.
+ */
+public class Metrics implements MetricsMBean {
+    /**
+     * Instance of Metrics available to all other classes for recording
+     */
+    public static final Metrics instance = new Metrics();
+    private static final String DOMAIN = "QueManager";
+    /**
+     * Interval of probing how long the event dispatch thread takes to get
+     * to a newly posted event
+     */
+    private static final long EDT_PROBE_MILLIS = 100;
+    /**
+     * System properties giving the length in minutes of each window of
+     * waitTimes and the number of windows kept, an hour and a day if not set
+     */
+    private static final String WAIT_WINDOW_PROPERTY = "quemanager.waittimes.window.minutes";
+    private static final String WAIT_WINDOWS_PROPERTY = "quemanager.waittimes.windows";
+
+    /**
+     * From a key pressed on the keypad to the Tile showing it painted
+     */
+    public final Histogram keystrokeToPixel = new Histogram();
+    /**
+     * Work done by Animator in one frame
+     */
+    public final Histogram frameTime = new Histogram();
+    /**
+     * Time between two frames of Animator, its display refresh interval
+     * when the event dispatch thread keeps up
+     */
+    public final Histogram frameInterval = new Histogram();
+    /**
+     * From posting an event to the event dispatch thread to it being run
+     */
+    public final Histogram edtQueueDelay = new Histogram();
+    public final Histogram add = new Histogram();
+    public final Histogram remove = new Histogram();
+    /**
+     * From a change being queued by an AsyncReceiver to it being delivered
+     */
+    public final Histogram dispatchDelay = new Histogram();
+    /**
+     * Time a receiver takes to handle a change delivered by an AsyncReceiver
+     */
+    public final Histogram dispatch = new Histogram();
+    public final Histogram tilePaint = new Histogram();
+    /**
+     * From an entry being added to it being removed, collected
+     */
+    public final WaitTimes waitTimes = new WaitTimes(Long.getLong(WAIT_WINDOW_PROPERTY, 60),
+            Integer.getInteger(WAIT_WINDOWS_PROPERTY, 24));
+
+    private final LongAdder keystrokes = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    /**
+     * System.nanoTime() of the last keystroke not yet painted, 0 if none
+     */
+    private final AtomicLong unpaintedKeystroke = new AtomicLong();
+    private volatile IntSupplier openOrders = () -> 0;
+    private ScheduledExecutorService scheduler;
+    private final EdtProbe probe = new EdtProbe();
+    /**
+     * Probing of the event dispatch thread, null while paused or not
+     * started
+     */
+    private ScheduledFuture<?> probing;
+
+    private Metrics(){}
+
+    /**
+     * Records a keystroke, to be matched by the next call to painted()
+     */
+    public void keystroke(){
+        keystrokes.increment();
+        unpaintedKeystroke.set(System.nanoTime());
+    }
+    /**
+     * Records keystroke to pixel latency if a keystroke is waiting to be
+     * painted
+     */
+    public void painted(){
+        long keystroke = unpaintedKeystroke.get();
+        if (keystroke != 0 && unpaintedKeystroke.compareAndSet(keystroke, 0))
+            keystrokeToPixel.recordSince(keystroke);
+    }
+    /**
+     * Records a frame of Animator
+     * @param startNanos System.nanoTime() at start of frame
+     * @param previousStartNanos System.nanoTime() at start of previous frame,
+     *                           0 if this is the first frame of a run
+     */
+    public void frame(long startNanos, long previousStartNanos){
+        frames.increment();
+        frameTime.recordSince(startNanos);
+        if (previousStartNanos != 0)
+            frameInterval.record(startNanos - previousStartNanos);
+    }
+    /**
+     * Records an entry removed by Expiry rather than collected
+     */
+    public void expired(){
+        expired.increment();
+    }
+    /**
+     * @param openOrders supplier of the number of entries currently added
+     */
+    public void setOpenOrders(IntSupplier openOrders){
+        this.openOrders = openOrders;
+    }
+    /**
+     * Registers all metrics with the platform MBean server and starts
+     * probing the event dispatch thread
+     * @param logSeconds interval of logging a summary, 0 for never
+     */
+    public synchronized void start(long logSeconds){
+        if (scheduler != null)
+            return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(DOMAIN + ":type=Metrics"));
+            registerHistogram(server, "keystrokeToPixel", keystrokeToPixel);
+            registerHistogram(server, "frameTime", frameTime);
+            registerHistogram(server, "frameInterval", frameInterval);
+            registerHistogram(server, "edtQueueDelay", edtQueueDelay);
+            registerHistogram(server, "add", add);
+            registerHistogram(server, "remove", remove);
+            registerHistogram(server, "dispatchDelay", dispatchDelay);
+            registerHistogram(server, "dispatch", dispatch);
+            registerHistogram(server, "tilePaint", tilePaint);
+            registerHistogram(server, "waitTime", waitTimes.getTotal());
+            server.registerMBean(waitTimes, new ObjectName(DOMAIN + ":type=WaitTimes"));
+        }catch(JMException e){
+            System.out.println("Exception catched: Metrics not registered, " + e.getMessage());
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "QueManager metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probing = scheduler.scheduleAtFixedRate(probe::post, EDT_PROBE_MILLIS, EDT_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+        if (logSeconds > 0)
+            scheduler.scheduleAtFixedRate(() -> System.out.println(getSummary()),
+                    logSeconds, logSeconds, TimeUnit.SECONDS);
+    }
+    /**
+     * Pauses or resumes probing the event dispatch thread, so that it is
+     * not woken up while there is nothing to show. Has no effect unless
+     * started.
+     * @param paused if the event dispatch thread is not to be probed
+     */
+    public synchronized void setProbingPaused(boolean paused){
+        if (scheduler == null || paused == (probing == null))
+            return;
+        if (paused){
+            probing.cancel(false);
+            probing = null;
+        }else{
+            probing = scheduler.scheduleAtFixedRate(probe::post, EDT_PROBE_MILLIS, EDT_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+    private static void registerHistogram(MBeanServer server, String name, Histogram histogram)
+            throws JMException {
+        server.registerMBean(histogram, new ObjectName(DOMAIN + ":type=Histogram,name=" + name));
+    }
+    @Override
+    public int getOpenOrders(){
+        return openOrders.getAsInt();
+    }
+    @Override
+    public long getKeystrokes(){
+        return keystrokes.sum();
+    }
+    @Override
+    public long getAdds(){
+        return add.getCount();
+    }
+    @Override
+    public long getRemoves(){
+        return remove.getCount();
+    }
+    @Override
+    public long getExpired(){
+        return expired.sum();
+    }
+    @Override
+    public long getFrames(){
+        return frames.sum();
+    }
+    @Override
+    public String getSummary(){
+        return String.format(Locale.ROOT,
+                "orders=%d expired=%d keystrokes=%d keystrokeToPixel p50/p99=%.1f/%.1fms" +
+                        " frame p50/p95/p99=%.2f/%.2f/%.2fms frameInterval p99=%.1fms" +
+                        " edtQueueDelay p50/p99=%.2f/%.2fms add p99=%.3fms dispatchDelay p99=%.2fms" +
+                        " tilePaint p99=%.2fms waitTime p50/p95=%.1f/%.1fmin",
+                getOpenOrders(), getExpired(), getKeystrokes(),
+                keystrokeToPixel.getP50Millis(), keystrokeToPixel.getP99Millis(),
+                frameTime.getP50Millis(), frameTime.getP95Millis(), frameTime.getP99Millis(),
+                frameInterval.getP99Millis(),
+                edtQueueDelay.getP50Millis(), edtQueueDelay.getP99Millis(),
+                add.getP99Millis(), dispatchDelay.getP99Millis(), tilePaint.getP99Millis(),
+                waitTimes.getCurrentP50Minutes(), waitTimes.getCurrentP95Minutes());
+    }
+
+    /**
+     * Event posted to the event dispatch thread, recording how long it
+     * waited to be run. Only posted again once it has been run, so a stalled
+     * event dispatch thread is not flooded with probes.
+     */
+    private class EdtProbe implements Runnable {
+        private volatile long postedNanos;
+
+        private void post(){
+            if (postedNanos != 0)
+                return;
+            postedNanos = System.nanoTime();
+            EventQueue.invokeLater(this);
+        }
+        @Override
+        public void run(){
+            edtQueueDelay.recordSince(postedNanos);
+            postedNanos = 0;
+        }
+    }
+}
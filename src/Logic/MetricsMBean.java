@@ -0,0 +1,21 @@
+package Logic;
+
+/**
+ * JMX view of the counters of Metrics. Durations are exposed as separate
+ * Histogram MBeans.
+ */
+public interface MetricsMBean {
+    int getOpenOrders();
+    long getKeystrokes();
+    long getAdds();
+    long getRemoves();
+    /**
+     * @return entries removed by Expiry, not counted as collected
+     */
+    long getExpired();
+    long getFrames();
+    /**
+     * @return one line summary of all metrics
+     */
+    String getSummary();
+}
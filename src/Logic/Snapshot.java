@@ -0,0 +1,189 @@
+package Logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Immutable view of the items of a BroadcastingList, in order, as of one
+ * version, every change to the BroadcastingList making a new version.
+ * Taking the latest Snapshot never locks and a Snapshot never changes, so
+ * it can be read at leisure from any thread, such as by a display joining
+ * late or by an exporter. A Snapshot also tells what changed since a
+ * recent earlier version as a Delta, so that a reader holding that version
+ * does not need to look at every item again.
+ * @param <T> generic type contained in BroadcastingList
+ */
+public final class Snapshot<T> {
+    private final long version;
+    private final Object[] items;
+    /**
+     * Change making this version, linking back to the changes before it as
+     * far back as they are kept, null for the first version
+     */
+    private final Change<T> change;
+
+    /**
+     * Constructs Snapshot of version 0, holding no items
+     */
+    Snapshot(){
+        this(0, new Object[0], null);
+    }
+    private Snapshot(long version, Object[] items, Change<T> change){
+        this.version = version;
+        this.items = items;
+        this.change = change;
+    }
+    /**
+     * @return number of changes made to the BroadcastingList before this
+     * Snapshot was taken
+     */
+    public long getVersion(){
+        return version;
+    }
+    public int size(){
+        return items.length;
+    }
+    public boolean isEmpty(){
+        return items.length == 0;
+    }
+    /**
+     * @param position of item
+     * @return item at position in order
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int position){
+        return (T)items[position];
+    }
+    /**
+     * @return all items in order, as an unmodifiable List
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList(){
+        return Collections.unmodifiableList(Arrays.asList((T[])items));
+    }
+    /**
+     * What changed from an earlier version to this one, with changes to the
+     * same key cancelling out
+     * @param since version to tell changes since, at most this version
+     * @return changes since version, null if changes that far back are no
+     * longer kept, in which case the whole Snapshot is to be read instead
+     * @throws IllegalArgumentException if since is negative or after this
+     * version
+     */
+    public Delta<T> changesSince(long since){
+        if (since < 0 || since > version)
+            throw new IllegalArgumentException("No version " + since + " up to " + version);
+        ArrayList<Change<T>> changes = new ArrayList<>();
+        Change<T> at = change;
+        while (at != null && at.version > since){
+            changes.add(at);
+            at = at.previous;
+        }
+        if (since != version && changes.get(changes.size() - 1).version != since + 1)
+            return null;
+        //First and last change of each key, oldest first
+        LinkedHashMap<Integer, Change<T>> first = new LinkedHashMap<>();
+        LinkedHashMap<Integer, Change<T>> last = new LinkedHashMap<>();
+        for (int i = changes.size() - 1; i >= 0; i--){
+            Change<T> change = changes.get(i);
+            first.putIfAbsent(change.key, change);
+            last.remove(change.key);
+            last.put(change.key, change);
+        }
+        ArrayList<T> removed = new ArrayList<>();
+        for (Change<T> change: first.values()){
+            if (!change.added)
+                removed.add(change.item);
+        }
+        ArrayList<T> added = new ArrayList<>();
+        for (Change<T> change: last.values()){
+            if (change.added)
+                added.add(change.item);
+        }
+        return new Delta<>(since, version, added, removed);
+    }
+    /**
+     * @param items all items in order as of the version of change, owned by
+     *              the Snapshot from then on
+     * @param change making the version, null for version 0
+     * @return Snapshot of the version of change
+     */
+    static <T> Snapshot<T> of(Object[] items, Change<T> change){
+        return new Snapshot<>(change == null ? 0 : change.version, items, change);
+    }
+
+    /**
+     * What changed between two versions. An item added and removed again in
+     * between is in neither list, an item removed and added again, perhaps
+     * in another Lane, is in both.
+     * @param <T> generic type contained in BroadcastingList
+     */
+    public static final class Delta<T> {
+        private final long from;
+        private final long to;
+        private final List<T> added;
+        private final List<T> removed;
+
+        private Delta(long from, long to, List<T> added, List<T> removed){
+            this.from = from;
+            this.to = to;
+            this.added = Collections.unmodifiableList(added);
+            this.removed = Collections.unmodifiableList(removed);
+        }
+        public long getFrom(){
+            return from;
+        }
+        public long getTo(){
+            return to;
+        }
+        /**
+         * @return items contained at version to but not at from, or added
+         * again in between, in the order they were last added
+         */
+        public List<T> getAdded(){
+            return added;
+        }
+        /**
+         * @return items contained at version from but not at to, or removed
+         * and added again in between, as they were at from
+         */
+        public List<T> getRemoved(){
+            return removed;
+        }
+        public boolean isEmpty(){
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * A single change to a BroadcastingList, linked to the change before it
+     * for as long as that is kept
+     */
+    static final class Change<T> {
+        final long version;
+        final boolean added;
+        final int key;
+        final T item;
+        /**
+         * Items of all changes of the batch this change ends, in order, null
+         * unless it ends a batch of changes applied at once
+         */
+        final List<T> batch;
+        /**
+         * Change of the version before, null once it is no longer kept
+         */
+        volatile Change<T> previous;
+
+        Change(long version, boolean added, int key, T item, List<T> batch, Change<T> previous){
+            this.version = version;
+            this.added = added;
+            this.key = key;
+            this.item = item;
+            this.batch = batch;
+            this.previous = previous;
+        }
+    }
+}
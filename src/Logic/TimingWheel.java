@@ -0,0 +1,167 @@
+package Logic;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Hashed timing wheel of deadlines of int keys, such as entry numbers.
+ * Time is divided into ticks, and each tick hashes to one of a fixed number
+ * of buckets, each holding a linked list of the keys due in its ticks.
+ * Scheduling and cancelling a key is done in constant time without
+ * allocating, however many keys are scheduled, and advancing the wheel only
+ * visits the buckets of the ticks passed. Keys due more than a full turn of
+ * the wheel ahead stay in their bucket until their turn comes.
+ * Scheduling and cancelling is safe from any number of threads, advancing
+ * from one thread at a time. Expired keys are handed over after the lock is
+ * released, so they may be scheduled again right away.
+ */
+public class TimingWheel {
+    /**
+     * Marks the end of a bucket list
+     */
+    private static final int NONE = -1;
+
+    private final Clock clock;
+    private final long tickMillis;
+    /**
+     * First key of the list of each bucket, NONE if empty
+     */
+    private final int[] heads;
+    /**
+     * Next and previous key in the bucket list of each scheduled key
+     */
+    private final int[] next;
+    private final int[] previous;
+    private final long[] deadlines;
+    /**
+     * Bucket of each scheduled key
+     */
+    private final int[] bucketOf;
+    private final boolean[] scheduled;
+    /**
+     * Last tick whose bucket has been visited
+     */
+    private long lastTick;
+    private int size;
+    /**
+     * Keys expired while advancing, handed over after the lock is released,
+     * and the buffer of the previous advance to swap with
+     */
+    private int[] expired = new int[64];
+    private int[] handedOver = new int[64];
+
+    /**
+     * Constructs empty TimingWheel
+     * @param keySpace number of distinct keys, keys ranging from 0 up to,
+     *                 but not including, keySpace
+     * @param buckets number of buckets, the wheel turning once every
+     *                buckets ticks
+     * @param tickMillis length of a tick, the precision of deadlines
+     * @param clock to tell the time by
+     */
+    public TimingWheel(int keySpace, int buckets, long tickMillis, Clock clock){
+        if (buckets < 1 || tickMillis < 1)
+            throw new IllegalArgumentException("Buckets and tick must be positive: " + buckets + ", " + tickMillis);
+        this.clock = clock;
+        this.tickMillis = tickMillis;
+        heads = new int[buckets];
+        Arrays.fill(heads, NONE);
+        next = new int[keySpace];
+        previous = new int[keySpace];
+        deadlines = new long[keySpace];
+        bucketOf = new int[keySpace];
+        scheduled = new boolean[keySpace];
+        lastTick = clock.millis() / tickMillis;
+    }
+    /**
+     * Schedules key to expire delayMillis from now, replacing any deadline
+     * it already had
+     * @param key to be scheduled
+     * @param delayMillis from now until key expires
+     */
+    public synchronized void schedule(int key, long delayMillis){
+        if (scheduled[key])
+            unlink(key);
+        long deadline = clock.millis() + delayMillis;
+        //Filed under the first tick starting at or after the deadline, so that
+        //the key is due when its bucket is visited, or on the next visit if
+        //that tick has already passed
+        long tick = Math.max((deadline + tickMillis - 1) / tickMillis, lastTick + 1);
+        int bucket = (int)Math.floorMod(tick, (long)heads.length);
+        deadlines[key] = deadline;
+        bucketOf[key] = bucket;
+        scheduled[key] = true;
+        previous[key] = NONE;
+        next[key] = heads[bucket];
+        if (heads[bucket] != NONE)
+            previous[heads[bucket]] = key;
+        heads[bucket] = key;
+        size++;
+    }
+    /**
+     * Cancels the deadline of key
+     * @param key to be cancelled
+     * @return false if key was not scheduled
+     */
+    public synchronized boolean cancel(int key){
+        if (key < 0 || key >= scheduled.length || !scheduled[key])
+            return false;
+        unlink(key);
+        return true;
+    }
+    /**
+     * @param key to look for
+     * @return if key is scheduled and not yet expired
+     */
+    public synchronized boolean isScheduled(int key){
+        return key >= 0 && key < scheduled.length && scheduled[key];
+    }
+    public synchronized int size(){
+        return size;
+    }
+    /**
+     * Visits the buckets of all ticks passed since the last call, expiring
+     * the keys due by now
+     * @param action receiving each expired key, in no particular order
+     * @return number of keys expired
+     */
+    public int advance(IntConsumer action){
+        int[] due;
+        int count = 0;
+        synchronized (this){
+            long now = clock.millis();
+            long nowTick = now / tickMillis;
+            long ticks = Math.min(nowTick - lastTick, heads.length);
+            for (long tick = nowTick - ticks + 1; tick <= nowTick; tick++){
+                int key = heads[(int)Math.floorMod(tick, (long)heads.length)];
+                while (key != NONE){
+                    int following = next[key];
+                    if (deadlines[key] <= now){
+                        unlink(key);
+                        if (count == expired.length)
+                            expired = Arrays.copyOf(expired, count * 2);
+                        expired[count++] = key;
+                    }
+                    key = following;
+                }
+            }
+            lastTick = Math.max(lastTick, nowTick);
+            due = expired;
+            expired = handedOver;
+            handedOver = due;
+        }
+        for (int i = 0; i < count; i++)
+            action.accept(due[i]);
+        return count;
+    }
+    private void unlink(int key){
+        if (previous[key] != NONE)
+            next[previous[key]] = next[key];
+        else
+            heads[bucketOf[key]] = next[key];
+        if (next[key] != NONE)
+            previous[next[key]] = previous[key];
+        scheduled[key] = false;
+        size--;
+    }
+}
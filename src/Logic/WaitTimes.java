@@ -0,0 +1,165 @@
+package Logic;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long entries wait between being added, ready for collection, and
+ * being removed, collected. Wait times are recorded in a fixed number of
+ * rolling windows of fixed length aligned to the wall clock, hours by
+ * default. Each window is a Histogram, so memory stays the same however
+ * long the process runs and recording never allocates. Once all windows
+ * have been used, the oldest window is reset and reused.
+ * Entries restored from the Journal or taken from another process count
+ * as ready from when they were restored or taken.
+ */
+public class WaitTimes implements WaitTimesMBean {
+    /**
+     * Length of each window in milliseconds
+     */
+    private final long windowMillis;
+    /**
+     * Windows reused in turn, window number n kept at n modulo length
+     */
+    private final Window[] windows;
+    /**
+     * All wait times since the process was started
+     */
+    private final Histogram total = new Histogram();
+
+    /**
+     * Constructs WaitTimes keeping windowCount windows of windowMinutes each
+     * @param windowMinutes length of each window
+     * @param windowCount number of windows kept, the current one included
+     */
+    public WaitTimes(long windowMinutes, int windowCount){
+        if (windowMinutes < 1 || windowCount < 1)
+            throw new IllegalArgumentException("Windows must be positive: " + windowCount + " of " + windowMinutes + " minutes");
+        windowMillis = TimeUnit.MINUTES.toMillis(windowMinutes);
+        windows = new Window[windowCount];
+        for (int i = 0; i < windowCount; i++)
+            windows[i] = new Window();
+    }
+    /**
+     * Records the wait time of entry, collected now
+     * @param entry removed
+     */
+    public void collected(Entry entry){
+        record(System.currentTimeMillis(), System.nanoTime() - entry.getReadyNanos());
+    }
+    /**
+     * Records a wait time in the window containing collectedMillis. Wait
+     * times of windows no longer kept are only recorded in the total.
+     * @param collectedMillis wall clock time of collection
+     * @param waitNanos time waited
+     */
+    public void record(long collectedMillis, long waitNanos){
+        total.record(waitNanos);
+        long number = collectedMillis / windowMillis;
+        Window window = windows[(int)(number % windows.length)];
+        if (window.number != number && !window.roll(number))
+            return;
+        window.waitTimes.record(waitNanos);
+    }
+    /**
+     * Wait times of a window
+     * @param windowsAgo 0 for the current window, 1 for the one before, and
+     *                   so on
+     * @return wait times of window, empty if nothing was collected in it
+     * or if it is no longer kept
+     */
+    public Histogram window(int windowsAgo){
+        long number = System.currentTimeMillis() / windowMillis - windowsAgo;
+        Window window = windows[(int)Math.floorMod(number, (long)windows.length)];
+        return window.number == number ? window.waitTimes : new Histogram();
+    }
+    /**
+     * @return all wait times since the process was started
+     */
+    public Histogram getTotal(){
+        return total;
+    }
+    @Override
+    public long getWindowMinutes(){
+        return TimeUnit.MILLISECONDS.toMinutes(windowMillis);
+    }
+    @Override
+    public long getCurrentCount(){
+        return window(0).getCount();
+    }
+    @Override
+    public double getCurrentP50Minutes(){
+        return minutes(window(0).percentile(50));
+    }
+    @Override
+    public double getCurrentP95Minutes(){
+        return minutes(window(0).percentile(95));
+    }
+    @Override
+    public double getCurrentP99Minutes(){
+        return minutes(window(0).percentile(99));
+    }
+    @Override
+    public double getPreviousThroughputPerHour(){
+        return window(1).getCount() * (double)TimeUnit.HOURS.toMillis(1) / windowMillis;
+    }
+    @Override
+    public double getPreviousP50Minutes(){
+        return minutes(window(1).percentile(50));
+    }
+    @Override
+    public double getPreviousP95Minutes(){
+        return minutes(window(1).percentile(95));
+    }
+    @Override
+    public double getPreviousP99Minutes(){
+        return minutes(window(1).percentile(99));
+    }
+    @Override
+    public String[] getWindows(){
+        ArrayList<String> lines = new ArrayList<>();
+        for (int windowsAgo = windows.length - 1; windowsAgo >= 0; windowsAgo--){
+            long start = (System.currentTimeMillis() / windowMillis - windowsAgo) * windowMillis;
+            Histogram waitTimes = window(windowsAgo);
+            if (waitTimes.getCount() == 0)
+                continue;
+            lines.add(String.format(Locale.ROOT,
+                    "%s collected=%d perHour=%.1f wait p50/p95/p99/max=%.1f/%.1f/%.1f/%.1fmin",
+                    Instant.ofEpochMilli(start), waitTimes.getCount(),
+                    waitTimes.getCount() * (double)TimeUnit.HOURS.toMillis(1) / windowMillis,
+                    minutes(waitTimes.percentile(50)), minutes(waitTimes.percentile(95)),
+                    minutes(waitTimes.percentile(99)), minutes(waitTimes.getMax())));
+        }
+        return lines.toArray(new String[0]);
+    }
+    private static double minutes(long nanos){
+        return nanos / (double)TimeUnit.MINUTES.toNanos(1);
+    }
+
+    /**
+     * Wait times of one window, reset when reused for a later window
+     */
+    private static class Window {
+        private final Histogram waitTimes = new Histogram();
+        /**
+         * Number of the window, milliseconds since the epoch divided by
+         * window length, -1 if not yet used
+         */
+        private volatile long number = -1;
+
+        /**
+         * Reuses Window for window number if number is later than the one
+         * it holds
+         * @return if Window now holds window number
+         */
+        private synchronized boolean roll(long number){
+            if (number > this.number){
+                waitTimes.reset();
+                this.number = number;
+            }
+            return number == this.number;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package Logic;
+
+/**
+ * JMX view of WaitTimes, wait times in minutes. Current is the window
+ * still being recorded, previous the last complete one.
+ */
+public interface WaitTimesMBean {
+    long getWindowMinutes();
+    long getCurrentCount();
+    double getCurrentP50Minutes();
+    double getCurrentP95Minutes();
+    double getCurrentP99Minutes();
+    /**
+     * @return entries collected in the previous window, per hour
+     */
+    double getPreviousThroughputPerHour();
+    double getPreviousP50Minutes();
+    double getPreviousP95Minutes();
+    double getPreviousP99Minutes();
+    /**
+     * @return one line per kept window in which anything was collected,
+     * oldest first, for export
+     */
+    String[] getWindows();
+}
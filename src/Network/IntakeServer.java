@@ -0,0 +1,294 @@
+package Network;
+
+import Logic.Lane;
+import Logic.Manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * TCP server letting other systems, such as the kitchen, add and remove
+ * entries through Manager. All connections are served by a single thread
+ * using non-blocking I/O, and nothing is done on the event dispatch thread;
+ * display updates reach Canvas coalesced through its AsyncReceiver.
+ *
+ * The protocol is line based, one command per line, each answered by one
+ * line:
+ * ADD 12 13 14     adds entries 12, 13 and 14, answered by OK 3
+ * ADD VIP 15       adds entry 15 in Lane VIP, answered by OK 1
+ * REMOVE 12 13     removes entries 12 and 13, answered by OK 2
+ * Entries are added in Lane REGULAR unless ADD is followed by the name of
+ * another Lane.
+ * Any number of commands may be sent at once. A command is applied only if
+ * all its numbers are valid entry numbers, otherwise it is answered by
+ * ERR followed by the reason. OK is followed by the number of entries
+ * actually added or removed, entries already added or not added being
+ * skipped. The numbers of one command are applied at once, as one batch.
+ */
+public class IntakeServer implements Runnable, Closeable {
+    /**
+     * Longest line accepted, longer lines close the connection
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+    /**
+     * Most bytes of answers waiting to be sent to a connection before its
+     * commands are no longer read, until its client reads the answers
+     */
+    private static final int MAX_PENDING_BYTES = 1 << 20;
+    private static final byte[] ADD = "ADD".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REMOVE = "REMOVE".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Names of all Lanes, indexed by ordinal
+     */
+    private static final byte[][] LANES = new byte[Lane.values().length][];
+    static {
+        for (Lane lane: Lane.values())
+            LANES[lane.ordinal()] = lane.name().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final Manager manager;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs IntakeServer listening on address, to be started by start()
+     * @param manager to apply commands to
+     * @param address to listen on, port 0 for any free port
+     * @throws IOException if address can't be listened on
+     */
+    public IntakeServer(Manager manager, InetSocketAddress address) throws IOException {
+        this.manager = manager;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this, "QueManager intake");
+        thread.setDaemon(true);
+    }
+    public void start(){
+        thread.start();
+    }
+    /**
+     * @return port listened on
+     */
+    public int getPort(){
+        return server.socket().getLocalPort();
+    }
+    /**
+     * Stops serving and closes all connections
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+    @Override
+    public void run(){
+        try {
+            while (running){
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()){
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable())
+                            accept();
+                        else if (key.isReadable())
+                            read(key);
+                        else if (key.isWritable())
+                            write(key);
+                    }catch(IOException e){
+                        key.cancel();
+                        key.channel().close();
+                    }
+                }
+            }
+        }catch(IOException e){
+            System.out.println("Exception catched: Intake server stopped, " + e.getMessage());
+        }finally{
+            for (SelectionKey key: selector.keys()){
+                try {
+                    key.channel().close();
+                }catch(IOException ignored){
+                }
+            }
+            try {
+                selector.close();
+            }catch(IOException ignored){
+            }
+        }
+    }
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+    /**
+     * Reads what is available, applies every complete line and sends the
+     * answers
+     */
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel)key.channel();
+        Connection connection = (Connection)key.attachment();
+        int read = channel.read(connection.in);
+        if (read == -1){
+            channel.close();
+            return;
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        int lineStart = in.position();
+        for (int i = in.position(); i < in.limit(); i++){
+            if (in.get(i) == '\n'){
+                execute(in, lineStart, i, connection);
+                lineStart = i + 1;
+            }
+        }
+        in.position(lineStart);
+        in.compact();
+        if (!in.hasRemaining())
+            throw new IOException("Line too long");
+        write(key);
+    }
+    /**
+     * Sends buffered answers, waiting for the channel to become writable
+     * if not all could be sent. Commands are not read while more than
+     * MAX_PENDING_BYTES are left to be sent, so that a client sending
+     * commands without reading the answers can't make them pile up.
+     */
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection)key.attachment();
+        connection.out.flip();
+        ((SocketChannel)key.channel()).write(connection.out);
+        int pending = connection.out.remaining();
+        if (pending > MAX_PENDING_BYTES)
+            key.interestOps(SelectionKey.OP_WRITE);
+        else if (pending > 0)
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        else
+            key.interestOps(SelectionKey.OP_READ);
+        connection.out.compact();
+    }
+    /**
+     * Parses and applies the command between from and to, buffering the answer
+     */
+    private void execute(ByteBuffer in, int from, int to, Connection connection){
+        int position = skipSpaces(in, from, to);
+        int wordEnd = position;
+        while (wordEnd < to && !isSpace(in.get(wordEnd)))
+            wordEnd++;
+        if (position == wordEnd)
+            return;
+        boolean add;
+        if (wordEquals(in, position, wordEnd, ADD))
+            add = true;
+        else if (wordEquals(in, position, wordEnd, REMOVE))
+            add = false;
+        else{
+            answer(connection, "ERR Unknown command");
+            return;
+        }
+        Lane lane = Lane.REGULAR;
+        position = skipSpaces(in, wordEnd, to);
+        if (add && position < to && !isDigit(in.get(position))){
+            wordEnd = position;
+            while (wordEnd < to && !isSpace(in.get(wordEnd)))
+                wordEnd++;
+            lane = null;
+            for (Lane candidate: Lane.values()){
+                if (wordEquals(in, position, wordEnd, LANES[candidate.ordinal()]))
+                    lane = candidate;
+            }
+            if (lane == null){
+                answer(connection, "ERR Unknown lane");
+                return;
+            }
+            position = skipSpaces(in, wordEnd, to);
+        }
+        int count = 0;
+        while (position < to){
+            int number = 0;
+            int digits = 0;
+            while (position < to && !isSpace(in.get(position))){
+                byte digit = in.get(position++);
+                if (!isDigit(digit) || ++digits > Manager.MAX_ENTRY_DIGITS){
+                    answer(connection, "ERR Not an entry number");
+                    return;
+                }
+                number = number*10 + digit - '0';
+            }
+            connection.numbers[count++] = number;
+            position = skipSpaces(in, position, to);
+        }
+        int applied;
+        if (count == 1){
+            int number = connection.numbers[0];
+            applied = (add ? manager.add(number, lane) : manager.remove(number)) ? 1 : 0;
+        }else{
+            int[] numbers = Arrays.copyOf(connection.numbers, count);
+            applied = add ? manager.addAll(numbers, lane) : manager.removeAll(numbers);
+        }
+        answer(connection, "OK " + applied);
+    }
+    private void answer(Connection connection, String answer){
+        if (connection.out.remaining() < answer.length() + 1){
+            ByteBuffer grown = ByteBuffer.allocate(connection.out.capacity()*2 + answer.length() + 1);
+            connection.out.flip();
+            grown.put(connection.out);
+            connection.out = grown;
+        }
+        connection.out.put(answer.getBytes(StandardCharsets.US_ASCII)).put((byte)'\n');
+    }
+    private static boolean wordEquals(ByteBuffer in, int from, int to, byte[] word){
+        if (to - from != word.length)
+            return false;
+        for (int i = 0; i < word.length; i++){
+            if ((in.get(from + i) & ~0x20) != word[i])
+                return false;
+        }
+        return true;
+    }
+    private static int skipSpaces(ByteBuffer in, int from, int to){
+        while (from < to && isSpace(in.get(from)))
+            from++;
+        return from;
+    }
+    private static boolean isDigit(byte character){
+        return character >= '0' && character <= '9';
+    }
+    private static boolean isSpace(byte character){
+        return character == ' ' || character == '\t' || character == '\r' || character == ',';
+    }
+
+    /**
+     * Buffers of a single connection
+     */
+    private static class Connection {
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        private ByteBuffer out = ByteBuffer.allocate(1024);
+        /**
+         * Numbers of the command being parsed, as many as fit on a line
+         */
+        private final int[] numbers = new int[MAX_LINE_LENGTH/2];
+    }
+}
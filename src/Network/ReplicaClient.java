@@ -0,0 +1,145 @@
+package Network;
+
+import Logic.Entry;
+import Logic.EntryIndex;
+import Logic.Lane;
+import Logic.Manager;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Keeps the entries of a display-only Manager in line with those of a
+ * Manager replicating them through a ReplicationServer. Reconnects if the
+ * connection is lost or a change is missed, catching up from a snapshot.
+ */
+public class ReplicaClient implements Runnable, Closeable {
+    private static final int RECONNECT_MILLIS = 1000;
+
+    private final Manager manager;
+    private final InetSocketAddress address;
+    /**
+     * Entries added to manager
+     */
+    private final EntryIndex shown;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Socket socket;
+
+    /**
+     * Constructs ReplicaClient, to be started by start()
+     * @param manager to add and remove replicated entries to and from
+     * @param address of ReplicationServer
+     * @param keySpace number of distinct entry numbers
+     */
+    public ReplicaClient(Manager manager, InetSocketAddress address, int keySpace){
+        this.manager = manager;
+        this.address = address;
+        shown = new EntryIndex(keySpace, Lane.values().length);
+        thread = new Thread(this, "QueManager replica");
+        thread.setDaemon(true);
+    }
+    public void start(){
+        thread.start();
+    }
+    @Override
+    public void close() throws IOException {
+        running = false;
+        Socket current = socket;
+        if (current != null)
+            current.close();
+    }
+    @Override
+    public void run(){
+        while (running){
+            try (Socket connection = new Socket()){
+                socket = connection;
+                connection.connect(address);
+                connection.setTcpNoDelay(true);
+                replicate(new DataInputStream(new BufferedInputStream(connection.getInputStream())));
+            }catch(IOException e){
+                if (running)
+                    System.out.println("Exception catched: Replication lost, " + e.getMessage());
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            }catch(InterruptedException e){
+                return;
+            }
+        }
+    }
+    /**
+     * Applies frames until the connection is lost or a change is missed
+     */
+    private void replicate(DataInputStream in) throws IOException {
+        long expected = -1;
+        int[] codes = new int[shown.keySpace()];
+        while (running){
+            in.readInt();
+            byte type = in.readByte();
+            long sequence = in.readLong();
+            int count = in.readInt();
+            if (type == ReplicationServer.SNAPSHOT){
+                if (count > codes.length)
+                    throw new IOException("Snapshot larger than entry number space");
+                for (int i = 0; i < count; i++)
+                    codes[i] = in.readInt();
+                applySnapshot(codes, count);
+                expected = sequence + 1;
+            }else if (type == ReplicationServer.DELTA){
+                if (sequence != expected)
+                    throw new IOException("Missed changes " + expected + " to " + (sequence - 1));
+                for (int i = 0; i < count; i++){
+                    int change = in.readInt();
+                    if (change >= 0)
+                        add(change);
+                    else
+                        remove(~change);
+                }
+                expected = sequence + count;
+            }else{
+                throw new IOException("Unknown frame " + type);
+            }
+        }
+    }
+    /**
+     * Removes entries not in snapshot, then adds those after the part of
+     * snapshot already shown in the same order. Entries shown but out of
+     * order, having been removed and added again while disconnected, are
+     * removed and added again here too.
+     */
+    private void applySnapshot(int[] codes, int count){
+        EntryIndex snapshot = new EntryIndex(shown.keySpace(), shown.laneCount());
+        for (int i = 0; i < count; i++)
+            snapshot.addCode(codes[i]);
+        for (int i = shown.size() - 1; i >= 0; i--){
+            int number = shown.get(i);
+            if (!snapshot.contains(number))
+                remove(number);
+        }
+        int inOrder = 0;
+        while (inOrder < count && inOrder < shown.size() && shown.codeAt(inOrder) == codes[inOrder])
+            inOrder++;
+        for (int i = inOrder; i < count; i++){
+            remove(Entry.numberOf(codes[i]));
+            add(codes[i]);
+        }
+    }
+    /**
+     * Adds the entry of code, unless its number or Lane is unknown here
+     */
+    private void add(int code){
+        if (shown.addCode(code)){
+            int number = Entry.numberOf(code);
+            manager.add(number, Lane.values()[shown.laneOf(number)]);
+        }
+    }
+    private void remove(int number){
+        if (shown.remove(number))
+            manager.remove(number);
+    }
+}
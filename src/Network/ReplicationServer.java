@@ -0,0 +1,316 @@
+package Network;
+
+import Logic.BroadcastingListReceiver;
+import Logic.Entry;
+import Logic.EntryIndex;
+import Logic.Lane;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Replicates the list of entries of Manager to display-only processes,
+ * each running its own Canvas fed by a ReplicaClient.
+ * Changes are handed over to a single network thread and never wait for
+ * the network, so adding displays does not slow down order entry. All
+ * changes handed over since the last send are sent as one delta, so under
+ * load changes are batched. Every change is numbered, so a display can
+ * tell if it missed any.
+ * A newly connected display first gets a snapshot of all entries. A
+ * display falling more than MAX_BACKLOG_BYTES behind has its backlog thrown
+ * away and gets a fresh snapshot instead. Only whole frames are thrown
+ * away: the rest of a frame partly sent is still sent first, so that the
+ * snapshot starts where the display expects a frame. A snapshot is always
+ * queued, however large.
+ *
+ * Frames are an int length followed by that many bytes:
+ * byte SNAPSHOT, long number of changes so far, int count, count entry codes
+ * byte DELTA, long number of first change, int count, count changes
+ * A change is the entry code, see Entry.code, if added and the bitwise
+ * complement of the entry number if removed.
+ */
+public class ReplicationServer implements BroadcastingListReceiver<Entry>, Runnable, Closeable {
+    static final byte SNAPSHOT = 1;
+    static final byte DELTA = 2;
+    /**
+     * Bytes of a frame before its entry codes or changes: length, type,
+     * sequence number and count
+     */
+    static final int FRAME_HEADER_BYTES = 4 + 1 + 8 + 4;
+    /**
+     * Bytes a display may fall behind before it is sent a snapshot instead
+     */
+    private static final int MAX_BACKLOG_BYTES = 1 << 20;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    /**
+     * Entries as of the last change sent, owned by the network thread
+     */
+    private final EntryIndex sent;
+    private final ArrayList<Subscriber> subscribers = new ArrayList<>();
+    /**
+     * Number of changes sent
+     */
+    private long sequence;
+    /**
+     * Changes handed over and not yet taken by the network thread
+     */
+    private int[] pending = new int[256];
+    private int pendingCount;
+    private int[] taken = new int[256];
+    private volatile boolean running = true;
+
+    /**
+     * Constructs ReplicationServer listening on address, to be started by
+     * start()
+     * @param address to listen on, port 0 for any free port
+     * @param keySpace number of distinct entry numbers
+     * @throws IOException if address can't be listened on
+     */
+    public ReplicationServer(InetSocketAddress address, int keySpace) throws IOException {
+        sent = new EntryIndex(keySpace, Lane.values().length);
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this, "QueManager replication");
+        thread.setDaemon(true);
+    }
+    public void start(){
+        thread.start();
+    }
+    /**
+     * @return port listened on
+     */
+    public int getPort(){
+        return server.socket().getLocalPort();
+    }
+    @Override
+    public void doOnAdd(Entry item) {
+        handOver(item.getCode());
+    }
+    @Override
+    public void doOnRemove(Entry item) {
+        handOver(~item.getNumber());
+    }
+    /**
+     * Stops replicating and disconnects all displays
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * Hands a change over to the network thread, waking it up unless changes
+     * are already waiting for it
+     */
+    private void handOver(int change){
+        synchronized (this){
+            if (pendingCount == pending.length)
+                pending = Arrays.copyOf(pending, pending.length*2);
+            pending[pendingCount++] = change;
+            if (pendingCount > 1)
+                return;
+        }
+        selector.wakeup();
+    }
+    @Override
+    public void run(){
+        try {
+            while (running){
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()){
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable())
+                            accept();
+                        else if (key.isReadable())
+                            read(key);
+                        else if (key.isWritable())
+                            ((Subscriber)key.attachment()).flush();
+                    }catch(IOException e){
+                        disconnect(key);
+                    }
+                }
+                sendPending();
+            }
+        }catch(IOException e){
+            System.out.println("Exception catched: Replication stopped, " + e.getMessage());
+        }finally{
+            for (SelectionKey key: selector.keys()){
+                try {
+                    key.channel().close();
+                }catch(IOException ignored){
+                }
+            }
+            try {
+                selector.close();
+            }catch(IOException ignored){
+            }
+        }
+    }
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        Subscriber subscriber = new Subscriber(channel);
+        subscriber.key = channel.register(selector, SelectionKey.OP_READ, subscriber);
+        subscribers.add(subscriber);
+        subscriber.sendSnapshot();
+    }
+    /**
+     * Displays send nothing, reading only tells if they disconnected
+     */
+    private void read(SelectionKey key) throws IOException {
+        ByteBuffer discard = ByteBuffer.allocate(64);
+        if (((SocketChannel)key.channel()).read(discard) == -1)
+            disconnect(key);
+    }
+    private void disconnect(SelectionKey key){
+        subscribers.remove((Subscriber)key.attachment());
+        key.cancel();
+        try {
+            key.channel().close();
+        }catch(IOException ignored){
+        }
+    }
+    /**
+     * Takes all changes handed over, applies them to sent and sends them to
+     * all displays as one delta
+     */
+    private void sendPending(){
+        int count;
+        synchronized (this){
+            if (pendingCount == 0)
+                return;
+            int[] swap = taken;
+            taken = pending;
+            pending = swap;
+            count = pendingCount;
+            pendingCount = 0;
+        }
+        ByteBuffer delta = ByteBuffer.allocate(FRAME_HEADER_BYTES + 4*count);
+        delta.putInt(delta.capacity() - 4).put(DELTA).putLong(sequence + 1).putInt(count);
+        for (int i = 0; i < count; i++){
+            int change = taken[i];
+            if (change >= 0)
+                sent.addCode(change);
+            else
+                sent.remove(~change);
+            delta.putInt(change);
+        }
+        sequence += count;
+        for (Subscriber subscriber: new ArrayList<>(subscribers)){
+            try {
+                delta.rewind();
+                subscriber.send(delta);
+            }catch(IOException e){
+                disconnect(subscriber.key);
+            }
+        }
+    }
+
+    /**
+     * A connected display and the bytes not yet sent to it
+     */
+    private class Subscriber {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer backlog = ByteBuffer.allocate(4096);
+        /**
+         * Bytes of the frame at the head of backlog not yet sent, once part
+         * of it has been sent, 0 if backlog starts with a whole frame
+         */
+        private int headLeft;
+
+        private Subscriber(SocketChannel channel){
+            this.channel = channel;
+        }
+        /**
+         * Sends a snapshot instead of the backlog, keeping only the rest of
+         * a frame partly sent
+         */
+        private void sendSnapshot() throws IOException {
+            backlog.position(headLeft);
+            ByteBuffer snapshot = ByteBuffer.allocate(FRAME_HEADER_BYTES + 4*sent.size());
+            snapshot.putInt(snapshot.capacity() - 4).put(SNAPSHOT).putLong(sequence).putInt(sent.size());
+            for (int i = 0; i < sent.size(); i++)
+                snapshot.putInt(sent.codeAt(i));
+            snapshot.flip();
+            append(snapshot);
+        }
+        /**
+         * Sends frame after the backlog, or a snapshot instead of backlog and
+         * frame if the backlog would grow too large
+         */
+        private void send(ByteBuffer frame) throws IOException {
+            if (backlog.position() + frame.remaining() > MAX_BACKLOG_BYTES){
+                sendSnapshot();
+                return;
+            }
+            append(frame);
+        }
+        /**
+         * Sends frame after the backlog, however large the backlog grows
+         */
+        private void append(ByteBuffer frame) throws IOException {
+            if (backlog.remaining() < frame.remaining()){
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(backlog.capacity()*2,
+                        backlog.position() + frame.remaining()));
+                backlog.flip();
+                grown.put(backlog);
+                backlog = grown;
+            }
+            backlog.put(frame);
+            flush();
+        }
+        /**
+         * Sends as much of the backlog as the socket takes, keeping track of
+         * where the frame left at its head ends
+         */
+        private void flush() throws IOException {
+            backlog.flip();
+            int written = channel.write(backlog);
+            int frameStart = 0;
+            int frameEnd = headLeft > 0 ? headLeft : frameEnd(0);
+            while (frameEnd <= written && frameEnd < backlog.limit()){
+                frameStart = frameEnd;
+                frameEnd = frameEnd(frameStart);
+            }
+            boolean started = written > frameStart || headLeft > 0 && frameStart == 0;
+            headLeft = started && frameEnd > written ? frameEnd - written : 0;
+            backlog.compact();
+            key.interestOps(backlog.position() > 0 ?
+                    SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+        /**
+         * @param frameStart position in the flipped backlog of a whole frame,
+         *                   or of its end
+         * @return position of the end of the frame
+         */
+        private int frameEnd(int frameStart){
+            return frameStart < backlog.limit() ? frameStart + 4 + backlog.getInt(frameStart) : frameStart;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package Graphics;
+
+import Logic.Manager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the bytes allocated by the thread typing on InputPane under
+ * headless AWT, from a key pressed to the Tile showing it being painted,
+ * which are to be none. Keys are typed as in InputPaneBenchmark, in rounds
+ * until a round allocates nothing, so that rounds typed before the code
+ * typing has been compiled do not count, for at most MAX_ROUNDS rounds.
+ */
+class InputPaneAllocationTest {
+    private static final int WARMUP_KEYSTROKES = 5_000;
+    /**
+     * Keystrokes of a round
+     */
+    private static final int KEYSTROKES = 1_000;
+    private static final int MAX_ROUNDS = 100;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private InputPane pane;
+    private KeyListener listener;
+    /**
+     * A digit, a backspace back to the first digit and a switch of Lane, so
+     * that the number typed stays within Manager.MAX_ENTRY_DIGITS
+     */
+    private KeyEvent[] keys;
+    private int next;
+    private Graphics2D graphics;
+
+    @BeforeEach
+    void setUp(){
+        assertTrue(threads.isThreadAllocatedMemorySupported(), "Allocated bytes not counted by this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        Manager.instance = new Manager();
+        pane = new InputPane(new TileBoard());
+        pane.type(1);
+        listener = pane.getKeyListeners()[0];
+        keys = new KeyEvent[]{
+                key(KeyEvent.VK_2, '2'), key(KeyEvent.VK_BACK_SPACE, '\b'),
+                key(KeyEvent.VK_MULTIPLY, '*')};
+        BufferedImage image = new BufferedImage(Tile.width(), Tile.height(), BufferedImage.TYPE_INT_ARGB_PRE);
+        graphics = image.createGraphics();
+    }
+    private KeyEvent key(int code, char character){
+        return new KeyEvent(pane, KeyEvent.KEY_PRESSED, 0, 0, code, character);
+    }
+
+    @Test
+    void keystrokeAllocatesNothing(){
+        assertEquals(0, fewestBytes(false), "Bytes allocated by " + KEYSTROKES + " keystrokes");
+    }
+    @Test
+    void keystrokeToPixelAllocatesNothing(){
+        assertEquals(0, fewestBytes(true), "Bytes allocated by " + KEYSTROKES + " keystrokes painted");
+    }
+    /**
+     * Types WARMUP_KEYSTROKES, then rounds of KEYSTROKES until one allocates
+     * nothing or MAX_ROUNDS have been typed
+     * @param paint if the Tile being typed is painted after each keystroke
+     * @return fewest bytes allocated by a round, less those allocated by
+     * counting them
+     */
+    private long fewestBytes(boolean paint){
+        type(WARMUP_KEYSTROKES, paint);
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < MAX_ROUNDS && fewest > 0; round++){
+            long start = threads.getCurrentThreadAllocatedBytes();
+            long counting = threads.getCurrentThreadAllocatedBytes() - start;
+            start = threads.getCurrentThreadAllocatedBytes();
+            type(KEYSTROKES, paint);
+            long bytes = threads.getCurrentThreadAllocatedBytes() - start - counting;
+            fewest = Math.min(fewest, Math.max(0, bytes));
+        }
+        return fewest;
+    }
+    private void type(int keystrokes, boolean paint){
+        for (int i = 0; i < keystrokes; i++){
+            listener.keyPressed(keys[next]);
+            next = (next + 1) % keys.length;
+            if (paint)
+                ((Tile)pane.getComponent(0)).paintComponent(graphics);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package Logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives AsyncReceiver with an executor that only queues tasks, run by
+ * hand through deliver(), so that everything queued before deliver() is
+ * called is delivered in one tick.
+ */
+class AsyncReceiverTest {
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Tasks handed to the executor and not yet run
+     */
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * Changes delivered, one per call of the receiver
+     */
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Receiver recording the changes delivered to it
+     */
+    private class Recorder implements BroadcastingListReceiver<Entry> {
+        @Override
+        public void doOnAdd(Entry item){
+            delivered.add("add " + item);
+        }
+        @Override
+        public void doOnRemove(Entry item){
+            delivered.add("remove " + item);
+        }
+        @Override
+        public void doOnAddAll(List<Entry> items){
+            delivered.add("add " + items);
+        }
+        @Override
+        public void doOnRemoveAll(List<Entry> items){
+            delivered.add("remove " + items);
+        }
+    }
+    private AsyncReceiver<Entry> receiver(int capacity, AsyncReceiver.OverflowPolicy policy){
+        return new AsyncReceiver<>(new Recorder(), Entry::getNumber, tasks::add, capacity, policy);
+    }
+    /**
+     * Runs the tasks handed to the executor
+     * @return number of tasks run
+     */
+    private int deliver(){
+        int run = 0;
+        Runnable task;
+        while ((task = tasks.poll()) != null){
+            task.run();
+            run++;
+        }
+        return run;
+    }
+
+    @Test
+    void changesQueuedWhileBusyAreDeliveredAsOneTick(){
+        AsyncReceiver<Entry> receiver = receiver(16, AsyncReceiver.OverflowPolicy.BLOCK);
+        receiver.doOnAdd(new Entry(1));
+        receiver.doOnAdd(new Entry(2));
+        receiver.doOnRemove(new Entry(3));
+        assertEquals(3, receiver.getQueued());
+        assertEquals(List.of(), delivered);
+        assertEquals(1, tasks.size());
+        assertEquals(1, deliver());
+        assertEquals(List.of("add 1", "add 2", "remove 3"), delivered);
+        assertEquals(0, receiver.getQueued());
+        //The next change starts the next tick
+        receiver.doOnAdd(new Entry(4));
+        assertEquals(1, deliver());
+        assertEquals(List.of("add 1", "add 2", "remove 3", "add 4"), delivered);
+    }
+    @Test
+    void additionRemovedWithinATickCancelsOut(){
+        AsyncReceiver<Entry> receiver = receiver(16, AsyncReceiver.OverflowPolicy.BLOCK);
+        receiver.doOnAdd(new Entry(1));
+        receiver.doOnAdd(new Entry(2));
+        receiver.doOnRemove(new Entry(1));
+        assertEquals(1, receiver.getQueued());
+        //A removal followed by an addition is not cancelled
+        receiver.doOnRemove(new Entry(5));
+        receiver.doOnAdd(new Entry(5));
+        deliver();
+        assertEquals(List.of("add 2", "remove 5", "add 5"), delivered);
+    }
+    @Test
+    void additionDeliveredInAnEarlierTickIsNotCancelled(){
+        AsyncReceiver<Entry> receiver = receiver(16, AsyncReceiver.OverflowPolicy.BLOCK);
+        receiver.doOnAdd(new Entry(1));
+        deliver();
+        receiver.doOnRemove(new Entry(1));
+        deliver();
+        assertEquals(List.of("add 1", "remove 1"), delivered);
+    }
+    @Test
+    void batchCountsAsOneChangeAndIsNeverCancelled(){
+        AsyncReceiver<Entry> receiver = receiver(16, AsyncReceiver.OverflowPolicy.BLOCK);
+        receiver.doOnAddAll(List.of(new Entry(1), new Entry(2), new Entry(3)));
+        assertEquals(1, receiver.getQueued());
+        receiver.doOnRemove(new Entry(2));
+        receiver.doOnRemoveAll(List.of(new Entry(1), new Entry(3)));
+        assertEquals(3, receiver.getQueued());
+        deliver();
+        assertEquals(List.of("add [1, 2, 3]", "remove 2", "remove [1, 3]"), delivered);
+    }
+    @Test
+    void dropNewestDropsChangesPastCapacity(){
+        AsyncReceiver<Entry> receiver = receiver(2, AsyncReceiver.OverflowPolicy.DROP_NEWEST);
+        receiver.doOnAdd(new Entry(1));
+        receiver.doOnAdd(new Entry(2));
+        receiver.doOnAdd(new Entry(3));
+        receiver.doOnAddAll(List.of(new Entry(4)));
+        assertEquals(2, receiver.getDropped());
+        //A cancelled addition makes room
+        receiver.doOnRemove(new Entry(1));
+        receiver.doOnAdd(new Entry(5));
+        assertEquals(2, receiver.getDropped());
+        deliver();
+        assertEquals(List.of("add 2", "add 5"), delivered);
+        receiver.doOnAdd(new Entry(6));
+        assertEquals(2, receiver.getDropped());
+    }
+    @Test
+    void rejectThrowsPastCapacity(){
+        AsyncReceiver<Entry> receiver = receiver(1, AsyncReceiver.OverflowPolicy.REJECT);
+        receiver.doOnAdd(new Entry(1));
+        assertThrows(RejectedExecutionException.class, () -> receiver.doOnAdd(new Entry(2)));
+        assertThrows(RejectedExecutionException.class, () -> receiver.doOnRemoveAll(List.of(new Entry(1))));
+        assertEquals(0, receiver.getDropped());
+        deliver();
+        assertEquals(List.of("add 1"), delivered);
+        receiver.doOnAdd(new Entry(2));
+        deliver();
+        assertEquals(List.of("add 1", "add 2"), delivered);
+    }
+    @Test
+    void blockMakesOtherThreadsWaitForDelivery() throws InterruptedException {
+        AsyncReceiver<Entry> receiver = receiver(1, AsyncReceiver.OverflowPolicy.BLOCK);
+        receiver.doOnAdd(new Entry(1));
+        Thread producer = new Thread(() -> receiver.doOnAdd(new Entry(2)));
+        producer.start();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (producer.getState() != Thread.State.WAITING){
+            assertTrue(System.currentTimeMillis() < deadline, "Producer not waiting");
+            Thread.sleep(1);
+        }
+        assertEquals(1, receiver.getQueued());
+        deliver();
+        producer.join(TIMEOUT_MILLIS);
+        assertFalse(producer.isAlive());
+        deliver();
+        assertEquals(List.of("add 1", "add 2"), delivered);
+    }
+    @Test
+    void blockDoesNotWaitOnTheDeliveringThread(){
+        BroadcastingList<Entry> list = new BroadcastingList<>(Entry::getNumber, Manager.ENTRY_SPACE);
+        //Adds three more entries on being delivered the first one, well
+        //past capacity, from the thread delivering
+        list.addReceiver(new Recorder(){
+            @Override
+            public void doOnAdd(Entry item){
+                super.doOnAdd(item);
+                if (item.getNumber() == 1){
+                    list.add(new Entry(2));
+                    list.add(new Entry(3));
+                    list.addAll(List.of(new Entry(4), new Entry(5)));
+                }
+            }
+        }, tasks::add, 1, AsyncReceiver.OverflowPolicy.BLOCK);
+        list.add(new Entry(1));
+        assertTimeoutPreemptively(Duration.ofMillis(TIMEOUT_MILLIS), () -> assertEquals(1, deliver()));
+        assertEquals(List.of("add 1", "add 2", "add 3", "add [4, 5]"), delivered);
+        assertEquals(List.of(1, 2, 3, 4, 5), list.snapshot().toList().stream().map(Entry::getNumber).toList());
+    }
+}
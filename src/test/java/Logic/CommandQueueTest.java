@@ -0,0 +1,37 @@
+package Logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that CommandQueue keeps applying commands, in order, after one of
+ * them fails
+ */
+class CommandQueueTest {
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    @Test
+    void failingCommandDoesNotStopLaterCommands() throws InterruptedException {
+        Manager manager = new Manager();
+        CommandQueue commands = new CommandQueue(manager);
+        commands.submit(Command.add(1, Lane.REGULAR));
+        //Outside the entry space, throwing IllegalArgumentException
+        commands.submit(Command.add(Manager.ENTRY_SPACE, Lane.REGULAR));
+        commands.submit(Command.add(2, Lane.VIP));
+        commands.submit(Command.remove(1));
+        commands.submit(Command.add(3, Lane.REGULAR));
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        //Commands are applied in order, so all of them are once 3 is added
+        while (!manager.snapshot().toList().contains(new Entry(3))){
+            assertTrue(System.currentTimeMillis() < deadline, "Commands not applied: " + manager.snapshot().toList());
+            Thread.sleep(10);
+        }
+        List<Entry> entries = manager.snapshot().toList();
+        assertEquals(List.of(2, 3), entries.stream().map(Entry::getNumber).toList());
+        assertEquals(List.of(Lane.VIP, Lane.REGULAR), entries.stream().map(Entry::getLane).toList());
+    }
+}
@@ -0,0 +1,113 @@
+package Logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives Expiry by hand through tick() on a ManualClock, entries being
+ * added and removed through Manager as they are when running. Expiry ticks
+ * once a second on a wheel of 512 buckets, so an expiry of 20 minutes lies
+ * more than two turns ahead.
+ */
+class ExpiryTest {
+    private static final long EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(20);
+    private static final long TICK_MILLIS = 1000;
+
+    private ManualClock clock;
+    private Manager manager;
+    private Expiry expiry;
+
+    @BeforeEach
+    void setUp(){
+        clock = new ManualClock(0);
+        manager = new Manager();
+        expiry = new Expiry(manager, EXPIRY_MILLIS, Manager.ENTRY_SPACE, clock);
+        manager.addReceiver(expiry, Runnable::run);
+    }
+    /**
+     * @return numbers of the entries shown, in order
+     */
+    private List<Integer> shown(){
+        return manager.snapshot().toList().stream().map(Entry::getNumber).toList();
+    }
+
+    @Test
+    void uncollectedEntryExpiresAfterExpiryMillis(){
+        manager.add(7);
+        manager.add(8);
+        assertEquals(2, expiry.getScheduled());
+        clock.advance(EXPIRY_MILLIS - TICK_MILLIS);
+        assertEquals(0, expiry.tick());
+        assertEquals(List.of(7, 8), shown());
+        clock.advance(TICK_MILLIS);
+        assertEquals(2, expiry.tick());
+        assertEquals(List.of(), shown());
+        assertEquals(0, expiry.getScheduled());
+    }
+    @Test
+    void collectedEntryIsCancelled(){
+        manager.add(7);
+        manager.add(8);
+        manager.remove(7);
+        assertEquals(1, expiry.getScheduled());
+        clock.advance(EXPIRY_MILLIS);
+        assertEquals(1, expiry.tick());
+        assertEquals(List.of(), shown());
+    }
+    @Test
+    void entryAddedAgainAfterExpiringGetsAFreshDeadline(){
+        manager.add(7);
+        clock.advance(EXPIRY_MILLIS);
+        assertEquals(1, expiry.tick());
+        manager.add(7);
+        assertEquals(1, expiry.getScheduled());
+        clock.advance(EXPIRY_MILLIS - TICK_MILLIS);
+        assertEquals(0, expiry.tick());
+        assertEquals(List.of(7), shown());
+        clock.advance(TICK_MILLIS);
+        assertEquals(1, expiry.tick());
+        assertEquals(List.of(), shown());
+    }
+    @Test
+    void entryAddedAgainBeforeExpiringCountsFromTheLastAddition(){
+        manager.add(7);
+        clock.advance(EXPIRY_MILLIS / 2);
+        manager.remove(7);
+        manager.add(7);
+        clock.advance(EXPIRY_MILLIS / 2);
+        assertEquals(0, expiry.tick());
+        assertEquals(List.of(7), shown());
+        clock.advance(EXPIRY_MILLIS / 2);
+        assertEquals(1, expiry.tick());
+    }
+    @Test
+    void skippingManyTurnsExpiresEverythingDue(){
+        manager.add(1);
+        clock.advance(EXPIRY_MILLIS / 2);
+        manager.add(2);
+        clock.advance(EXPIRY_MILLIS / 4);
+        manager.add(3);
+        //Far more ticks than the wheel has buckets, in one go
+        clock.advance(EXPIRY_MILLIS / 2 + EXPIRY_MILLIS / 4);
+        assertEquals(2, expiry.tick());
+        assertEquals(List.of(3), shown());
+        clock.advance(EXPIRY_MILLIS);
+        assertEquals(1, expiry.tick());
+        assertEquals(List.of(), shown());
+    }
+    @Test
+    void batchesAreScheduledAndCancelledLikeSingleEntries(){
+        manager.addAll(new int[]{1, 2, 3}, Lane.VIP);
+        assertEquals(3, expiry.getScheduled());
+        manager.removeAll(1, 3);
+        assertEquals(1, expiry.getScheduled());
+        clock.advance(EXPIRY_MILLIS);
+        assertEquals(1, expiry.tick());
+        assertEquals(List.of(), shown());
+    }
+}
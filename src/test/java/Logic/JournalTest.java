@@ -0,0 +1,198 @@
+package Logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes Journals in a temporary directory and opens them again, as on a
+ * restart. A snapshot is taken every 10,000 changes.
+ */
+class JournalTest {
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    /**
+     * Bytes of magic and generation heading both files
+     */
+    private static final int HEADER_BYTES = 12;
+    private static final int RECORD_BYTES = 5;
+    private static final int SNAPSHOT_INTERVAL = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private Journal open() throws IOException {
+        Journal journal = new Journal(directory, Manager.ENTRY_SPACE);
+        journal.start();
+        return journal;
+    }
+    /**
+     * Opens the journal again without starting it, as on a restart
+     * @return entries restored, as number and Lane, in order
+     */
+    private List<String> reopen() throws IOException {
+        Journal journal = new Journal(directory, Manager.ENTRY_SPACE);
+        journal.close();
+        return restored(journal);
+    }
+    /**
+     * @return entries restored by journal, as number and Lane, in order
+     */
+    private static List<String> restored(Journal journal){
+        return Arrays.stream(journal.getRestored())
+                .mapToObj(code -> Entry.numberOf(code) + " " + Entry.laneOf(code)).toList();
+    }
+    /**
+     * Adds and removes number until count changes have been made
+     */
+    private static void churn(Journal journal, int number, int count){
+        for (int i = 0; i < count/2; i++){
+            journal.doOnAdd(new Entry(number));
+            journal.doOnRemove(new Entry(number));
+        }
+    }
+    private Path journalFile(){
+        return directory.resolve("entries.journal");
+    }
+    private Path snapshotFile(){
+        return directory.resolve("entries.snapshot");
+    }
+    /**
+     * @return generation heading file
+     */
+    private static long generation(Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file), 4, 8).getLong();
+    }
+    private void awaitSnapshot(long generation) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!Files.exists(snapshotFile()) || generation(snapshotFile()) < generation){
+            assertTrue(System.currentTimeMillis() < deadline, "No snapshot of generation " + generation);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void emptyDirectoryRestoresNothing() throws IOException {
+        Journal journal = open();
+        assertEquals(List.of(), restored(journal));
+        journal.close();
+        assertEquals(HEADER_BYTES, Files.size(journalFile()));
+    }
+    @Test
+    void cleanRunIsRestored() throws IOException {
+        Journal journal = open();
+        journal.doOnAdd(new Entry(1, Lane.REGULAR));
+        journal.doOnAdd(new Entry(2, Lane.VIP));
+        journal.doOnAdd(new Entry(3, Lane.DELAYED));
+        journal.doOnAdd(new Entry(4, Lane.REGULAR));
+        journal.doOnRemove(new Entry(1));
+        journal.close();
+        assertEquals(HEADER_BYTES + 5*RECORD_BYTES, Files.size(journalFile()));
+        assertEquals(List.of("2 VIP", "3 DELAYED", "4 REGULAR"), reopen());
+    }
+    @Test
+    void restoredJournalIsAppendedTo() throws IOException {
+        Journal journal = open();
+        journal.doOnAdd(new Entry(1));
+        journal.close();
+        journal = open();
+        journal.doOnAdd(new Entry(2));
+        journal.doOnRemove(new Entry(1));
+        journal.close();
+        assertEquals(List.of("2 REGULAR"), reopen());
+    }
+    @Test
+    void tornTrailingRecordIsCutOff() throws IOException {
+        Journal journal = open();
+        journal.doOnAdd(new Entry(1));
+        journal.doOnAdd(new Entry(2));
+        journal.close();
+        long size = Files.size(journalFile());
+        //The first bytes of the addition of 3, the rest lost in a crash
+        Files.write(journalFile(), new byte[]{'+', 0, 0}, StandardOpenOption.APPEND);
+        journal = open();
+        assertEquals(List.of("1 REGULAR", "2 REGULAR"), restored(journal));
+        assertEquals(size, Files.size(journalFile()));
+        //Records written next follow the last complete one
+        journal.doOnAdd(new Entry(3));
+        journal.close();
+        assertEquals(List.of("1 REGULAR", "2 REGULAR", "3 REGULAR"), reopen());
+    }
+    @Test
+    void snapshotEmptiesTheJournal() throws IOException, InterruptedException {
+        Journal journal = open();
+        journal.doOnAdd(new Entry(1, Lane.VIP));
+        churn(journal, 5, SNAPSHOT_INTERVAL);
+        awaitSnapshot(1);
+        journal.doOnAdd(new Entry(7));
+        journal.close();
+        assertEquals(1, generation(journalFile()));
+        //The addition of 7, after the last change of the interval if that was
+        //written on its own
+        assertTrue(Files.size(journalFile()) <= HEADER_BYTES + 2*RECORD_BYTES,
+                "Journal not emptied: " + Files.size(journalFile()) + " bytes");
+        assertEquals(List.of("1 VIP", "7 REGULAR"), reopen());
+    }
+    @Test
+    void journalOlderThanSnapshotIsSkipped() throws IOException, InterruptedException {
+        Journal journal = open();
+        journal.doOnAdd(new Entry(9));
+        churn(journal, 5, SNAPSHOT_INTERVAL);
+        awaitSnapshot(1);
+        journal.doOnAdd(new Entry(8));
+        journal.close();
+        Path older = directory.resolve("older.journal");
+        Files.copy(journalFile(), older);
+
+        journal = open();
+        assertEquals(List.of("9 REGULAR", "8 REGULAR"), restored(journal));
+        journal.doOnRemove(new Entry(8));
+        journal.doOnRemove(new Entry(9));
+        churn(journal, 5, SNAPSHOT_INTERVAL);
+        awaitSnapshot(2);
+        journal.close();
+
+        //As if the snapshot of generation 2 had been written but the
+        //journal not yet emptied when the process died
+        Files.move(older, journalFile(), StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(1, generation(journalFile()));
+        journal = open();
+        assertEquals(List.of(), restored(journal));
+        assertEquals(HEADER_BYTES, Files.size(journalFile()));
+        assertEquals(2, generation(journalFile()));
+        journal.doOnAdd(new Entry(4));
+        journal.close();
+        assertEquals(List.of("4 REGULAR"), reopen());
+    }
+    @Test
+    void failedWriteStopsTakingChanges() throws Exception {
+        Journal journal = open();
+        journal.doOnAdd(new Entry(1));
+        //Closed under the writer, as when the disk goes away
+        Field channel = Journal.class.getDeclaredField("journal");
+        channel.setAccessible(true);
+        ((FileChannel)channel.get(journal)).close();
+        journal.doOnAdd(new Entry(2));
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!journal.isFailed()){
+            assertTrue(System.currentTimeMillis() < deadline, "Journal not failed");
+            Thread.sleep(10);
+        }
+        //Changes are dropped without waiting for anything
+        churn(journal, 60, 2*SNAPSHOT_INTERVAL);
+        assertTrue(journal.isFailed());
+        journal.close();
+    }
+}
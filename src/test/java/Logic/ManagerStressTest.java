@@ -0,0 +1,146 @@
+package Logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers Manager from many threads at once with single and batch additions
+ * and removals, then replays the changes broadcast, in the order they were
+ * broadcast, on a sequential model. Every change broadcast has to be valid
+ * in the model, every change a thread was told succeeded has to be
+ * broadcast exactly once, and the model has to end up holding the same
+ * entries in the same order as Manager.
+ */
+class ManagerStressTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20_000;
+    /**
+     * Largest batch added or removed at once
+     */
+    private static final int MAX_BATCH = 5;
+
+    @Test
+    void concurrentChangesMatchSequentialModel() throws InterruptedException {
+        Manager manager = new Manager();
+        Recorder recorder = new Recorder();
+        manager.addReceiver(recorder, Runnable::run);
+        AtomicLong applied = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ArrayList<Thread> threads = new ArrayList<>();
+        ArrayList<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++){
+            long seed = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    applied.addAndGet(hammer(manager, new Random(seed)));
+                }catch(Throwable e){
+                    synchronized (failures){
+                        failures.add(e);
+                    }
+                }
+            }, "producer " + t);
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread: threads)
+            thread.join();
+        assertEquals(List.of(), failures);
+
+        LinkedHashMap<Integer, Entry> model = new LinkedHashMap<>();
+        List<Change> changes = recorder.changes();
+        for (Change change: changes){
+            int number = change.entry.getNumber();
+            if (change.added)
+                assertNull(model.put(number, change.entry), "Added twice without removal: " + number);
+            else
+                assertNotNull(model.remove(number), "Removed while not added: " + number);
+        }
+        assertEquals(applied.get(), changes.size());
+        Snapshot<Entry> snapshot = manager.snapshot();
+        assertEquals(changes.size(), snapshot.getVersion());
+        assertEquals(new ArrayList<>(model.values()), snapshot.toList());
+        assertEquals(model.size(), manager.size());
+    }
+    /**
+     * Does OPERATIONS random changes on manager
+     * @return number of entries added or removed
+     */
+    private static long hammer(Manager manager, Random random){
+        long applied = 0;
+        Lane[] lanes = Lane.values();
+        for (int i = 0; i < OPERATIONS; i++){
+            int number = random.nextInt(Manager.ENTRY_SPACE);
+            switch (random.nextInt(4)){
+                case 0:
+                    applied += manager.add(number, lanes[random.nextInt(lanes.length)]) ? 1 : 0;
+                    break;
+                case 1:
+                    applied += manager.remove(number) ? 1 : 0;
+                    break;
+                case 2:
+                    applied += manager.addAll(numbers(random), lanes[random.nextInt(lanes.length)]);
+                    break;
+                default:
+                    applied += manager.removeAll(numbers(random));
+            }
+        }
+        return applied;
+    }
+    private static int[] numbers(Random random){
+        int[] numbers = new int[1 + random.nextInt(MAX_BATCH)];
+        for (int i = 0; i < numbers.length; i++)
+            numbers[i] = random.nextInt(Manager.ENTRY_SPACE);
+        return numbers;
+    }
+
+    /**
+     * Receiver recording every change in the order it is broadcast, batches
+     * as one change per item
+     */
+    private static class Recorder implements BroadcastingListReceiver<Entry> {
+        private final ArrayList<Change> changes = new ArrayList<>();
+
+        @Override
+        public synchronized void doOnAdd(Entry item){
+            changes.add(new Change(true, item));
+        }
+        @Override
+        public synchronized void doOnRemove(Entry item){
+            changes.add(new Change(false, item));
+        }
+        @Override
+        public synchronized void doOnAddAll(List<Entry> items){
+            for (Entry item: items)
+                changes.add(new Change(true, item));
+        }
+        @Override
+        public synchronized void doOnRemoveAll(List<Entry> items){
+            for (Entry item: items)
+                changes.add(new Change(false, item));
+        }
+        private synchronized List<Change> changes(){
+            return Collections.unmodifiableList(new ArrayList<>(changes));
+        }
+    }
+
+    private static class Change {
+        private final boolean added;
+        private final Entry entry;
+
+        private Change(boolean added, Entry entry){
+            this.added = added;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package Logic;
+
+/**
+ * Virtual Clock standing still until moved on by hand
+ */
+class ManualClock implements Clock {
+    private long millis;
+
+    ManualClock(long millis){
+        this.millis = millis;
+    }
+    @Override
+    public long millis(){
+        return millis;
+    }
+    /**
+     * Moves the clock on
+     * @param delta milliseconds to move on by
+     */
+    void advance(long delta){
+        millis += delta;
+    }
+}
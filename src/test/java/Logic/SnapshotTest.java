@@ -0,0 +1,140 @@
+package Logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Takes Snapshots of a BroadcastingList of entries between changes, single
+ * and batched. The last 1024 changes are kept for changesSince.
+ */
+class SnapshotTest {
+    private static final int LOG_CAPACITY = 1024;
+
+    private BroadcastingList<Entry> list;
+
+    @BeforeEach
+    void setUp(){
+        list = new BroadcastingList<>(Entry::getNumber, Manager.ENTRY_SPACE);
+    }
+    private static List<Integer> numbers(List<Entry> entries){
+        return entries.stream().map(Entry::getNumber).toList();
+    }
+    private void add(int... numbers){
+        for (int number: numbers)
+            list.add(new Entry(number));
+    }
+    /**
+     * Adds and removes number until count changes have been made
+     */
+    private void churn(int number, int count){
+        for (int i = 0; i < count/2; i++){
+            list.add(new Entry(number));
+            list.remove(new Entry(number));
+        }
+    }
+
+    @Test
+    void snapshotIsTakenOncePerVersion(){
+        Snapshot<Entry> empty = list.snapshot();
+        assertEquals(0, empty.getVersion());
+        add(1, 2);
+        Snapshot<Entry> snapshot = list.snapshot();
+        assertSame(snapshot, list.snapshot());
+        assertEquals(2, snapshot.getVersion());
+        add(3);
+        //Taken Snapshots never change
+        assertEquals(List.of(1, 2), numbers(snapshot.toList()));
+        assertEquals(List.of(), empty.toList());
+        assertEquals(List.of(1, 2, 3), numbers(list.snapshot().toList()));
+    }
+    @Test
+    void additionRemovedAgainCancelsOut(){
+        add(1, 2);
+        Snapshot<Entry> before = list.snapshot();
+        add(3, 4);
+        list.remove(new Entry(3));
+        list.remove(new Entry(1));
+        list.add(new Entry(1, Lane.VIP));
+        add(5);
+        list.remove(new Entry(5));
+        Snapshot.Delta<Entry> delta = list.snapshot().changesSince(before.getVersion());
+        assertEquals(before.getVersion(), delta.getFrom());
+        assertEquals(list.snapshot().getVersion(), delta.getTo());
+        //1 removed and added again is in both, in its Lane before and after
+        assertEquals(List.of(4, 1), numbers(delta.getAdded()));
+        assertEquals(Lane.VIP, delta.getAdded().get(1).getLane());
+        assertEquals(List.of(1), numbers(delta.getRemoved()));
+        assertEquals(Lane.REGULAR, delta.getRemoved().get(0).getLane());
+    }
+    @Test
+    void churnBetweenVersionsIsEmpty(){
+        add(1);
+        Snapshot<Entry> before = list.snapshot();
+        churn(2, 100);
+        Snapshot<Entry> after = list.snapshot();
+        assertEquals(before.getVersion() + 100, after.getVersion());
+        assertTrue(after.changesSince(before.getVersion()).isEmpty());
+        assertTrue(after.changesSince(after.getVersion()).isEmpty());
+    }
+    @Test
+    void changesPastLogCapacityAreNotTold(){
+        Snapshot<Entry> empty = list.snapshot();
+        add(1);
+        churn(2, LOG_CAPACITY - 2);
+        add(3);
+        Snapshot<Entry> kept = list.snapshot();
+        assertEquals(LOG_CAPACITY, kept.getVersion());
+        assertEquals(List.of(1, 3), numbers(kept.changesSince(empty.getVersion()).getAdded()));
+        list.remove(new Entry(3));
+        Snapshot<Entry> latest = list.snapshot();
+        assertNull(latest.changesSince(empty.getVersion()));
+        assertEquals(List.of(3), numbers(latest.changesSince(kept.getVersion()).getRemoved()));
+        //3 added and removed again since
+        assertTrue(latest.changesSince(1).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> latest.changesSince(latest.getVersion() + 1));
+        assertThrows(IllegalArgumentException.class, () -> latest.changesSince(-1));
+    }
+    @Test
+    void batchCountsEachOfItsChanges(){
+        for (int number = 0; number < Manager.ENTRY_SPACE; number++)
+            add(number);
+        Snapshot<Entry> full = list.snapshot();
+        //Each item of the batch is a version of its own
+        list.clear();
+        Snapshot<Entry> cleared = list.snapshot();
+        assertEquals(full.getVersion() + Manager.ENTRY_SPACE, cleared.getVersion());
+        assertEquals(Manager.ENTRY_SPACE, cleared.changesSince(full.getVersion()).getRemoved().size());
+        for (int i = 0; i < LOG_CAPACITY/Manager.ENTRY_SPACE; i++){
+            list.addAll(full.toList());
+            list.clear();
+        }
+        assertNull(list.snapshot().changesSince(full.getVersion()));
+    }
+    @Test
+    void snapshotAfterBatchesKeepsListOrder(){
+        add(7, 3, 9, 1, 5, 4, 8);
+        Snapshot<Entry> before = list.snapshot();
+        assertEquals(List.of(7, 9, 5, 4, 8), numbers(list.removeRange(4, 9)));
+        assertEquals(List.of(3, 1), numbers(list.snapshot().toList()));
+        Snapshot.Delta<Entry> delta = list.snapshot().changesSince(before.getVersion());
+        assertEquals(List.of(7, 9, 5, 4, 8), numbers(delta.getRemoved()));
+        assertEquals(List.of(), delta.getAdded());
+
+        list.addAll(List.of(new Entry(6), new Entry(1), new Entry(2)));
+        add(0);
+        assertEquals(List.of(3, 1, 6, 2, 0), numbers(list.snapshot().toList()));
+        list.removeAll(1, 0, 42);
+        assertEquals(List.of(3, 6, 2), numbers(list.snapshot().toList()));
+        Snapshot<Entry> beforeClear = list.snapshot();
+        assertEquals(List.of(3, 6, 2), numbers(list.clear()));
+        assertEquals(List.of(), list.snapshot().toList());
+        assertEquals(List.of(3, 6, 2), numbers(list.snapshot().changesSince(beforeClear.getVersion()).getRemoved()));
+        add(2, 3);
+        assertEquals(List.of(2, 3), numbers(list.snapshot().toList()));
+        assertEquals(List.of(3, 6, 2), numbers(beforeClear.toList()));
+    }
+}
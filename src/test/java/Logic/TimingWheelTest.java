@@ -0,0 +1,154 @@
+package Logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives TimingWheel through a ManualClock, so that every deadline is met
+ * at exactly the tick it is due in
+ */
+class TimingWheelTest {
+    private static final int KEY_SPACE = 100;
+    private static final int BUCKETS = 8;
+    private static final long TICK_MILLIS = 10;
+    /**
+     * Time of one turn of the wheel
+     */
+    private static final long TURN_MILLIS = BUCKETS * TICK_MILLIS;
+
+    private ManualClock clock;
+    private TimingWheel wheel;
+
+    @BeforeEach
+    void setUp(){
+        clock = new ManualClock(1_000);
+        wheel = new TimingWheel(KEY_SPACE, BUCKETS, TICK_MILLIS, clock);
+    }
+    /**
+     * Advances the wheel to now on the clock
+     * @return keys expired, in ascending order
+     */
+    private List<Integer> advance(){
+        ArrayList<Integer> expired = new ArrayList<>();
+        int count = wheel.advance(expired::add);
+        assertEquals(count, expired.size());
+        Collections.sort(expired);
+        return expired;
+    }
+
+    @Test
+    void expiresKeyOnTheTickOfItsDeadline(){
+        wheel.schedule(5, 25);
+        assertTrue(wheel.isScheduled(5));
+        assertEquals(1, wheel.size());
+        clock.advance(29);
+        assertEquals(List.of(), advance());
+        clock.advance(1);
+        assertEquals(List.of(5), advance());
+        assertFalse(wheel.isScheduled(5));
+        assertEquals(0, wheel.size());
+        clock.advance(TURN_MILLIS);
+        assertEquals(List.of(), advance());
+    }
+    @Test
+    void cancelledKeyNeverExpires(){
+        wheel.schedule(1, 20);
+        wheel.schedule(2, 20);
+        assertTrue(wheel.cancel(1));
+        assertFalse(wheel.cancel(1));
+        assertFalse(wheel.cancel(3));
+        assertFalse(wheel.cancel(-1));
+        assertFalse(wheel.cancel(KEY_SPACE));
+        clock.advance(20);
+        assertEquals(List.of(2), advance());
+        assertEquals(0, wheel.size());
+    }
+    @Test
+    void schedulingAgainReplacesDeadline(){
+        wheel.schedule(7, 20);
+        wheel.schedule(7, 50);
+        assertEquals(1, wheel.size());
+        clock.advance(20);
+        assertEquals(List.of(), advance());
+        clock.advance(30);
+        assertEquals(List.of(7), advance());
+    }
+    @Test
+    void keyScheduledAgainAfterExpiringExpiresAgain(){
+        wheel.schedule(3, 10);
+        clock.advance(10);
+        //Scheduled again by the action, as when an expired entry is added again
+        ArrayList<Integer> expired = new ArrayList<>();
+        wheel.advance(key -> {
+            expired.add(key);
+            wheel.schedule(key, 30);
+        });
+        assertEquals(List.of(3), expired);
+        assertTrue(wheel.isScheduled(3));
+        clock.advance(20);
+        assertEquals(List.of(), advance());
+        clock.advance(10);
+        assertEquals(List.of(3), advance());
+    }
+    @Test
+    void deadlineMoreThanOneTurnAheadWaitsForItsTurn(){
+        long delay = 3*TURN_MILLIS + 5;
+        wheel.schedule(9, delay);
+        wheel.schedule(8, TICK_MILLIS);
+        long elapsed = 0;
+        ArrayList<Integer> expired = new ArrayList<>();
+        //Tick by tick, passing the bucket of key 9 three times before its turn
+        while (elapsed < delay){
+            clock.advance(TICK_MILLIS);
+            elapsed += TICK_MILLIS;
+            List<Integer> due = advance();
+            if (elapsed < delay)
+                assertFalse(due.contains(9), "Expired a turn early at " + elapsed);
+            expired.addAll(due);
+        }
+        assertEquals(List.of(8, 9), expired);
+        assertEquals(0, wheel.size());
+    }
+    @Test
+    void skippingMoreTicksThanBucketsExpiresEverythingDue(){
+        wheel.schedule(1, 15);
+        wheel.schedule(2, 45);
+        wheel.schedule(3, TURN_MILLIS - 5);
+        wheel.schedule(4, TURN_MILLIS + 15);
+        wheel.schedule(5, 10*TURN_MILLIS);
+        clock.advance(3*TURN_MILLIS);
+        assertEquals(List.of(1, 2, 3, 4), advance());
+        assertTrue(wheel.isScheduled(5));
+        clock.advance(6*TURN_MILLIS);
+        assertEquals(List.of(), advance());
+        clock.advance(TURN_MILLIS);
+        assertEquals(List.of(5), advance());
+    }
+    @Test
+    void keysSharingABucketExpireIndependently(){
+        //Same bucket, one turn apart
+        wheel.schedule(1, 20);
+        wheel.schedule(2, 20 + TURN_MILLIS);
+        wheel.schedule(3, 20);
+        assertTrue(wheel.cancel(3));
+        clock.advance(20);
+        assertEquals(List.of(1), advance());
+        clock.advance(TURN_MILLIS);
+        assertEquals(List.of(2), advance());
+    }
+    @Test
+    void keyDueNowExpiresAtTheStartOfTheNextTick(){
+        clock.advance(35);
+        assertEquals(List.of(), advance());
+        wheel.schedule(4, 0);
+        assertEquals(List.of(), advance());
+        clock.advance(5);
+        assertEquals(List.of(4), advance());
+    }
+}
@@ -0,0 +1,159 @@
+package Network;
+
+import Logic.BroadcastingListReceiver;
+import Logic.Entry;
+import Logic.Lane;
+import Logic.Manager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Talks to IntakeServer over a loopback connection on any free port, as
+ * the kitchen does. Changes reach the receiver on the intake thread before
+ * the answer is sent, so they are all in once the answer is read.
+ */
+class IntakeServerTest {
+    private Manager manager;
+    private IntakeServer server;
+    private Socket socket;
+    private BufferedReader answers;
+    /**
+     * Changes received, one per call of the receiver
+     */
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        manager = new Manager();
+        manager.addReceiver(new BroadcastingListReceiver<>(){
+            @Override
+            public void doOnAdd(Entry item){
+                received.add("add " + item);
+            }
+            @Override
+            public void doOnRemove(Entry item){
+                received.add("remove " + item);
+            }
+            @Override
+            public void doOnAddAll(List<Entry> items){
+                received.add("add " + items);
+            }
+            @Override
+            public void doOnRemoveAll(List<Entry> items){
+                received.add("remove " + items);
+            }
+        }, Runnable::run);
+        server = new IntakeServer(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        answers = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+    @AfterEach
+    void tearDown() throws IOException {
+        socket.close();
+        server.close();
+    }
+    private void send(String commands) throws IOException {
+        socket.getOutputStream().write(commands.getBytes(StandardCharsets.US_ASCII));
+    }
+    /**
+     * @return numbers of the entries shown, in order
+     */
+    private List<Integer> shown(){
+        return manager.snapshot().toList().stream().map(Entry::getNumber).toList();
+    }
+
+    @Test
+    void pipelinedCommandsAreAnsweredInOrder() throws IOException {
+        send("ADD 1,2 3\nREMOVE 2\r\nADD 3, 4\nREMOVE 2,9\n  \nREMOVE\t1\n");
+        assertEquals("OK 3", answers.readLine());
+        assertEquals("OK 1", answers.readLine());
+        //3 is already added
+        assertEquals("OK 1", answers.readLine());
+        //Neither is added
+        assertEquals("OK 0", answers.readLine());
+        //The empty line is not answered
+        assertEquals("OK 1", answers.readLine());
+        assertEquals(List.of(3, 4), shown());
+    }
+    @Test
+    void commandSplitAcrossWritesIsAppliedOnceComplete() throws IOException {
+        send("ADD 1");
+        send("2 3\n");
+        assertEquals("OK 2", answers.readLine());
+        assertEquals(List.of(12, 3), shown());
+    }
+    @Test
+    void addNamesTheLane() throws IOException {
+        send("ADD 1\nADD VIP 2\nADD DELAYED 3, 4\nADD 5\n");
+        assertEquals("OK 1", answers.readLine());
+        assertEquals("OK 1", answers.readLine());
+        assertEquals("OK 2", answers.readLine());
+        assertEquals("OK 1", answers.readLine());
+        List<Entry> entries = manager.snapshot().toList();
+        assertEquals(List.of(1, 2, 3, 4, 5), entries.stream().map(Entry::getNumber).toList());
+        assertEquals(List.of(Lane.REGULAR, Lane.VIP, Lane.DELAYED, Lane.DELAYED, Lane.REGULAR),
+                entries.stream().map(Entry::getLane).toList());
+    }
+    @Test
+    void invalidCommandsAreAnsweredByErrAndApplyNothing() throws IOException {
+        send("FETCH 1\nADD " + Manager.ENTRY_SPACE + "\nADD 1 2x\nADD SLOW 1\nREMOVE -1\nADD 7\n");
+        assertEquals("ERR Unknown command", answers.readLine());
+        assertEquals("ERR Not an entry number", answers.readLine());
+        //Not even the valid number before it is added
+        assertEquals("ERR Not an entry number", answers.readLine());
+        assertEquals("ERR Unknown lane", answers.readLine());
+        assertEquals("ERR Not an entry number", answers.readLine());
+        //The connection is still served
+        assertEquals("OK 1", answers.readLine());
+        assertEquals(List.of(7), shown());
+    }
+    @Test
+    void numbersOfOneLineReachReceiversAsOneBatch() throws IOException {
+        send("ADD 1 2 3\nREMOVE 3, 1\nADD 4\nREMOVE 2\n");
+        for (int i = 0; i < 4; i++)
+            assertTrue(answers.readLine().startsWith("OK"));
+        assertEquals(List.of("add [1, 2, 3]", "remove [3, 1]", "add 4", "remove 2"), received);
+    }
+    @Test
+    void commandsSentWithoutReadingAnswersAreAllAnswered(){
+        //Answers far more than the bytes of answers buffered per connection
+        int commands = 1_000_000;
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            Thread sender = new Thread(() -> {
+                byte[] chunk = "ADD 1\nREMOVE 1\n".repeat(1000).getBytes(StandardCharsets.US_ASCII);
+                try {
+                    OutputStream out = socket.getOutputStream();
+                    for (int i = 0; i < commands/2000; i++)
+                        out.write(chunk);
+                }catch(IOException e){
+                    throw new RuntimeException(e);
+                }
+            });
+            sender.start();
+            //Let the answers pile up before reading them
+            sender.join(1000);
+            for (int i = 0; i < commands; i++)
+                assertEquals("OK 1", answers.readLine());
+            sender.join();
+        });
+        assertEquals(List.of(), shown());
+    }
+}
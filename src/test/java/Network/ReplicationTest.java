@@ -0,0 +1,202 @@
+package Network;
+
+import Logic.Entry;
+import Logic.EntryIndex;
+import Logic.Lane;
+import Logic.Manager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replicates over loopback connections from a ReplicationServer listening
+ * on any free port, to a ReplicaClient feeding a Manager of its own and to
+ * a bare socket reading frames as they come. Displays show entries in order
+ * of Lane and, within each Lane, in order of addition, which is the order
+ * compared.
+ */
+class ReplicationTest {
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final Lane[] LANES = Lane.values();
+
+    private ReplicationServer server;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new ReplicationServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), Manager.ENTRY_SPACE);
+        server.start();
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+    /**
+     * @return entries of manager as number and Lane, in the order displayed
+     */
+    private static List<String> displayed(Manager manager){
+        List<Entry> entries = manager.snapshot().toList();
+        ArrayList<String> displayed = new ArrayList<>();
+        for (Lane lane: LANES){
+            for (Entry entry: entries){
+                if (entry.getLane() == lane)
+                    displayed.add(entry.getNumber() + " " + lane);
+            }
+        }
+        return displayed;
+    }
+    /**
+     * @return entries of index as number and Lane, in order
+     */
+    private static List<String> displayed(EntryIndex index){
+        ArrayList<String> displayed = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++)
+            displayed.add(Entry.numberOf(index.codeAt(i)) + " " + Entry.laneOf(index.codeAt(i)));
+        return displayed;
+    }
+    /**
+     * Makes a random change to manager, single or batched
+     */
+    private static void change(Manager manager, Random random){
+        int number = random.nextInt(Manager.ENTRY_SPACE);
+        switch (random.nextInt(4)){
+            case 0 -> manager.remove(number);
+            case 1 -> manager.addAll(new int[]{number, random.nextInt(Manager.ENTRY_SPACE)},
+                    LANES[random.nextInt(LANES.length)]);
+            case 2 -> manager.removeAll(number, random.nextInt(Manager.ENTRY_SPACE));
+            default -> manager.add(number, LANES[random.nextInt(LANES.length)]);
+        }
+    }
+
+    @Test
+    void replicaJoiningMidStreamEndsUpIdentical() throws Exception {
+        Manager source = new Manager();
+        source.addReceiver(server, Runnable::run);
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++)
+            change(source, random);
+        Manager replica = new Manager();
+        ReplicaClient client = new ReplicaClient(replica, address, Manager.ENTRY_SPACE);
+        client.start();
+        try {
+            //Joins while changes keep coming
+            for (int i = 0; i < 50_000; i++)
+                change(source, random);
+            List<String> expected = displayed(source);
+            assertFalse(expected.isEmpty());
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!displayed(replica).equals(expected)){
+                assertTrue(System.currentTimeMillis() < deadline,
+                        "Replica " + displayed(replica) + " not " + expected);
+                Thread.sleep(10);
+            }
+        }finally{
+            client.close();
+        }
+    }
+    @Test
+    void stalledDisplayIsResetOnAFrameBoundary() throws IOException {
+        try (Socket socket = new Socket()){
+            //Small, so that the display soon stops taking bytes
+            socket.setReceiveBufferSize(4096);
+            socket.connect(address);
+            socket.setSoTimeout((int)TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Frames frames = new Frames(in);
+            //Subscribed once the first snapshot arrives
+            assertEquals(ReplicationServer.SNAPSHOT, frames.read());
+            assertEquals(0, frames.shown.size());
+
+            //Far more than the backlog of 1 MiB and the socket buffers hold,
+            //handed over while nothing is read
+            EntryIndex expected = new EntryIndex(Manager.ENTRY_SPACE, LANES.length);
+            Random random = new Random(11);
+            long changes = 0;
+            for (; changes < 4_000_000; changes++){
+                int number = random.nextInt(Manager.ENTRY_SPACE);
+                if (expected.contains(number)){
+                    expected.remove(number);
+                    server.doOnRemove(new Entry(number));
+                }else{
+                    Entry entry = new Entry(number, LANES[random.nextInt(LANES.length)]);
+                    expected.addCode(entry.getCode());
+                    server.doOnAdd(entry);
+                }
+            }
+            int snapshots = 0;
+            while (frames.expected <= changes){
+                if (frames.read() == ReplicationServer.SNAPSHOT)
+                    snapshots++;
+            }
+            assertTrue(snapshots > 0, "Display never reset");
+            assertEquals(changes + 1, frames.expected);
+            assertEquals(displayed(expected), displayed(frames.shown));
+        }
+    }
+
+    /**
+     * Reads frames from a replication connection, checking that each is
+     * well formed and that no change is missed
+     */
+    private static class Frames {
+        private final DataInputStream in;
+        /**
+         * Entries as of the last frame read
+         */
+        private final EntryIndex shown = new EntryIndex(Manager.ENTRY_SPACE, LANES.length);
+        /**
+         * Number of the next change, 0 until the first snapshot
+         */
+        private long expected;
+
+        private Frames(DataInputStream in){
+            this.in = in;
+        }
+        /**
+         * Reads and applies a frame
+         * @return type of the frame
+         */
+        private byte read() throws IOException {
+            int length = in.readInt();
+            byte type = in.readByte();
+            long sequence = in.readLong();
+            int count = in.readInt();
+            assertEquals(ReplicationServer.FRAME_HEADER_BYTES - 4 + 4*count, length, "Frame length");
+            if (type == ReplicationServer.SNAPSHOT){
+                assertTrue(count <= Manager.ENTRY_SPACE, "Snapshot of " + count + " entries");
+                shown.clear();
+                for (int i = 0; i < count; i++)
+                    assertTrue(shown.addCode(in.readInt()), "Entry twice in snapshot");
+                //Nothing is sent twice, nor skipped
+                assertTrue(sequence + 1 >= expected, "Snapshot of change " + sequence + " before " + expected);
+                expected = sequence + 1;
+            }else{
+                assertEquals(ReplicationServer.DELTA, type, "Frame type");
+                assertEquals(expected, sequence, "First change of delta");
+                for (int i = 0; i < count; i++){
+                    int change = in.readInt();
+                    if (change >= 0)
+                        assertTrue(shown.addCode(change), "Entry added twice");
+                    else
+                        assertTrue(shown.remove(~change), "Entry not added removed");
+                }
+                expected = sequence + count;
+            }
+            return type;
+        }
+    }
+}